@@ -0,0 +1,115 @@
+package com.axontic.ecommerce.benchmark;
+
+import com.axontic.ecommerce.entity.CartItem;
+import com.axontic.ecommerce.entity.Customer;
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.entity.Product;
+import com.axontic.ecommerce.entity.ShoppingCart;
+import com.axontic.ecommerce.mapper.ProductMapper;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.repository.ProductRepository;
+import com.axontic.ecommerce.service.impl.ProductServiceImpl;
+import com.axontic.ecommerce.service.impl.ProductSuggestionIndex;
+import com.axontic.ecommerce.util.MappingMetrics;
+import ch.qos.logback.classic.Level;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic in-memory entity graphs for the benchmarks. No database is involved.
+ */
+final class BenchmarkFixtures {
+
+    private static final ItemType[] ITEM_TYPES = ItemType.values();
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * The services log every call at INFO; without a Spring Boot logging config that would go to
+     * the console at DEBUG and dominate the measurement.
+     */
+    static void quietLogging() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    static List<Product> products(int count) {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Product product = new Product();
+            product.setItemNumber((long) i);
+            product.setName("Product " + i);
+            product.setPrice(Math.round(random.nextDouble() * 100_000) / 100.0);
+            product.setItemType(ITEM_TYPES[i % ITEM_TYPES.length]);
+            product.setRating(i % 10 == 0 ? null : Math.round(random.nextDouble() * 500) / 100.0);
+            product.setUpdatedAt(UPDATED_AT.plusMinutes(i));
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * A product service over the given catalog, with the same cache settings as the application defaults
+     * and a fully built suggestion index.
+     */
+    static ProductServiceImpl productService(List<Product> catalog) {
+        ProductRepository repository = InMemoryRepositories.productRepository(catalog);
+        ProductMapper productMapper = new ProductMapper();
+        ProductSuggestionIndex suggestionIndex = new ProductSuggestionIndex(repository, productMapper);
+        suggestionIndex.replaceAll(productMapper.toDTOList(catalog));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new ProductServiceImpl(repository, null, productMapper, Jackson2ObjectMapperBuilder.json().build(), null,
+                suggestionIndex, null, null, meterRegistry, new MappingMetrics(meterRegistry), 10_000, Duration.ofMinutes(10));
+    }
+
+    static ProductDTO productDTO(long id) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setItemNumber(id);
+        productDTO.setName("Updated product");
+        productDTO.setPrice(19.99);
+        productDTO.setItemType(ItemType.TECH);
+        productDTO.setRating(4.5);
+        return productDTO;
+    }
+
+    /**
+     * A customer owning {@code cartCount} carts, each holding {@code itemsPerCart} distinct products.
+     */
+    static Customer customerWithCarts(long customerId, int cartCount, int itemsPerCart, List<Product> catalog) {
+        Customer customer = new Customer();
+        customer.setCustomerId(customerId);
+        customer.setFirstName("Jane");
+        customer.setLastName("Doe");
+        customer.setEmail("jane.doe" + customerId + "@example.com");
+        customer.setAddress("1 Main Street");
+
+        List<ShoppingCart> carts = new ArrayList<>(cartCount);
+        long itemId = 1;
+        for (int c = 0; c < cartCount; c++) {
+            ShoppingCart cart = new ShoppingCart();
+            cart.setShoppingCartId(customerId * 10_000 + c);
+            cart.setCustomer(customer);
+            for (int i = 0; i < itemsPerCart; i++) {
+                CartItem cartItem = new CartItem();
+                cartItem.setCartItemId(itemId++);
+                cartItem.setShoppingCart(cart);
+                cartItem.setProduct(catalog.get((c * itemsPerCart + i) % catalog.size()));
+                cartItem.setQuantity(1 + i % 3);
+                cart.getCartItems().add(cartItem);
+            }
+            carts.add(cart);
+        }
+        customer.setShoppingCarts(carts);
+        return customer;
+    }
+}
@@ -0,0 +1,77 @@
+package com.axontic.ecommerce.benchmark;
+
+import com.axontic.ecommerce.entity.Customer;
+import com.axontic.ecommerce.entity.Product;
+import com.axontic.ecommerce.mapper.CartItemMapper;
+import com.axontic.ecommerce.mapper.ProductMapper;
+import com.axontic.ecommerce.mapper.ShoppingCartMapper;
+import com.axontic.ecommerce.service.impl.ShoppingCartServiceImpl;
+import com.axontic.ecommerce.util.MappingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the add-to-cart validation for a customer with a long cart history.
+ * The product being added is in none of the carts, the worst case for the
+ * duplicate check; it should stay flat as the cart count grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartValidationBenchmark {
+
+    private static final long CUSTOMER_ID = 1L;
+
+    @Param({"10", "100", "1000"})
+    private int cartCount;
+
+    private ShoppingCartServiceImpl shoppingCartService;
+    private MethodHandle validateInput;
+    private long productId;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        BenchmarkFixtures.quietLogging();
+        List<Product> catalog = BenchmarkFixtures.products(cartCount * 10 + 1);
+        Customer customer = BenchmarkFixtures.customerWithCarts(CUSTOMER_ID, cartCount, 10, catalog.subList(0, cartCount * 10));
+        productId = catalog.get(catalog.size() - 1).getItemNumber();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        shoppingCartService = new ShoppingCartServiceImpl(
+                InMemoryRepositories.shoppingCartRepository(List.of(customer)),
+                InMemoryRepositories.customerRepository(),
+                InMemoryRepositories.cartItemRepository(List.of(customer)),
+                BenchmarkFixtures.productService(catalog),
+                new ShoppingCartMapper(new CartItemMapper(new ProductMapper())),
+                new MappingMetrics(meterRegistry),
+                meterRegistry);
+
+        validateInput = MethodHandles.privateLookupIn(ShoppingCartServiceImpl.class, MethodHandles.lookup())
+                .findVirtual(ShoppingCartServiceImpl.class, "validateInput",
+                        MethodType.methodType(void.class, Long.class, Long.class, Long.class, int.class));
+    }
+
+    @Benchmark
+    public void validateInput() throws Throwable {
+        validateInput.invokeExact(shoppingCartService, (Long) CUSTOMER_ID, (Long) null, (Long) productId, 1);
+    }
+}
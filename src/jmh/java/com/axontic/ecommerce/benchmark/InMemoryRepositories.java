@@ -0,0 +1,113 @@
+package com.axontic.ecommerce.benchmark;
+
+import com.axontic.ecommerce.entity.CartItem;
+import com.axontic.ecommerce.entity.Customer;
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.entity.Product;
+import com.axontic.ecommerce.entity.ShoppingCart;
+import com.axontic.ecommerce.repository.CartItemRepository;
+import com.axontic.ecommerce.repository.CustomerRepository;
+import com.axontic.ecommerce.repository.ProductRepository;
+import com.axontic.ecommerce.repository.ShoppingCartRepository;
+
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Repository stand-ins backed by in-memory fixtures, so the benchmarks measure the service
+ * code rather than the database. Only the methods the benchmarked paths call are answered;
+ * anything else fails loudly.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    static ProductRepository productRepository(List<Product> products) {
+        Map<Long, Product> byId = products.stream()
+                .collect(Collectors.toMap(Product::getItemNumber, Function.identity()));
+        return proxy(ProductRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "findAll" -> products;
+            case "findById" -> Optional.ofNullable(byId.get((Long) args[0]));
+            case "searchByName" -> {
+                String name = ((String) args[1]).toLowerCase(Locale.ROOT);
+                yield products.stream()
+                        .filter(product -> product.getName().toLowerCase(Locale.ROOT).contains(name))
+                        .limit((Integer) args[2])
+                        .toList();
+            }
+            case "findSuggestedProducts" -> {
+                @SuppressWarnings("unchecked") List<Long> excluded = (List<Long>) args[0];
+                @SuppressWarnings("unchecked") List<ItemType> itemTypes = (List<ItemType>) args[1];
+                yield products.stream()
+                        .filter(product -> !excluded.contains(product.getItemNumber()))
+                        .filter(product -> itemTypes.contains(product.getItemType()))
+                        .sorted(Comparator.comparing(Product::getRating,
+                                Comparator.nullsFirst(Comparator.<Double>naturalOrder())).reversed())
+                        .limit(((Pageable) args[2]).getPageSize())
+                        .toList();
+            }
+            default -> unsupported(method.getName());
+        });
+    }
+
+    static ShoppingCartRepository shoppingCartRepository(List<Customer> customers) {
+        Map<Long, List<ShoppingCart>> cartsByCustomer = customers.stream()
+                .collect(Collectors.toMap(Customer::getCustomerId, Customer::getShoppingCarts));
+        return proxy(ShoppingCartRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "findByCustomerCustomerId" -> cartsByCustomer.getOrDefault((Long) args[0], List.of());
+            default -> unsupported(method.getName());
+        });
+    }
+
+    static CustomerRepository customerRepository() {
+        return proxy(CustomerRepository.class, (proxy, method, args) -> unsupported(method.getName()));
+    }
+
+    static CartItemRepository cartItemRepository(List<Customer> customers) {
+        // (customer, product) -> carts holding it, standing in for the indexed EXISTS lookup
+        Map<Long, Map<Long, Set<Long>>> cartsByCustomerAndProduct = new HashMap<>();
+        for (Customer customer : customers) {
+            Map<Long, Set<Long>> cartsByProduct = cartsByCustomerAndProduct.computeIfAbsent(customer.getCustomerId(), id -> new HashMap<>());
+            for (ShoppingCart cart : customer.getShoppingCarts()) {
+                for (CartItem item : cart.getCartItems()) {
+                    cartsByProduct.computeIfAbsent(item.getProduct().getItemNumber(), id -> new HashSet<>()).add(cart.getShoppingCartId());
+                }
+            }
+        }
+        return proxy(CartItemRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "existsInOtherCart" -> {
+                Set<Long> carts = cartsByCustomerAndProduct.getOrDefault((Long) args[0], Map.of())
+                        .getOrDefault((Long) args[1], Set.of());
+                yield carts.stream().anyMatch(cartId -> !cartId.equals(args[2]));
+            }
+            default -> unsupported(method.getName());
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        InvocationHandler withObjectMethods = (proxy, method, args) -> switch (method.getName()) {
+            case "toString" -> type.getSimpleName() + "(in-memory)";
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> handler.invoke(proxy, method, args);
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, withObjectMethods));
+    }
+
+    private static Object unsupported(String methodName) {
+        throw new UnsupportedOperationException(methodName + " is not backed by the in-memory fixtures");
+    }
+}
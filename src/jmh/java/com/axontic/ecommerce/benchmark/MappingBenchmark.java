@@ -0,0 +1,98 @@
+package com.axontic.ecommerce.benchmark;
+
+import com.axontic.ecommerce.entity.Customer;
+import com.axontic.ecommerce.entity.Product;
+import com.axontic.ecommerce.mapper.CartItemMapper;
+import com.axontic.ecommerce.mapper.CustomerMapper;
+import com.axontic.ecommerce.mapper.ProductMapper;
+import com.axontic.ecommerce.mapper.ShoppingCartMapper;
+import com.axontic.ecommerce.model.CustomerDTO;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reflective {@code ObjectMapper.convertValue} mapping the services used to do
+ * with the hand-written mappers, for the list endpoints and the update merge path.
+ * Run with {@code -prof gc} (the default in the jmh profile) to see allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"100", "1000"})
+    private int productCount;
+
+    private ObjectMapper objectMapper;
+    private ProductMapper productMapper;
+    private CustomerMapper customerMapper;
+
+    private List<Product> products;
+    private Customer customer;
+    private Product target;
+    private ProductDTO update;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        productMapper = new ProductMapper();
+        customerMapper = new CustomerMapper(new ShoppingCartMapper(new CartItemMapper(productMapper)));
+
+        products = BenchmarkFixtures.products(productCount);
+        customer = BenchmarkFixtures.customerWithCarts(1L, 20, 10, products);
+        target = products.get(0);
+        update = BenchmarkFixtures.productDTO(target.getItemNumber());
+    }
+
+    @Benchmark
+    public List<ProductDTO> productListConvertValue() {
+        return products.stream()
+                .map(product -> objectMapper.convertValue(product, ProductDTO.class))
+                .toList();
+    }
+
+    @Benchmark
+    public List<ProductDTO> productListMapper() {
+        return productMapper.toDTOList(products);
+    }
+
+    @Benchmark
+    public CustomerDTO customerWithCartsConvertValue() {
+        return objectMapper.convertValue(customer, CustomerDTO.class);
+    }
+
+    @Benchmark
+    public CustomerDTO customerWithCartsMapper() {
+        return customerMapper.toDTO(customer);
+    }
+
+    @Benchmark
+    public Product productUpdateValue() throws JsonMappingException {
+        return objectMapper.updateValue(target, update);
+    }
+
+    @Benchmark
+    public Product productUpdateMapper() {
+        productMapper.updateEntity(update, target);
+        return target;
+    }
+}
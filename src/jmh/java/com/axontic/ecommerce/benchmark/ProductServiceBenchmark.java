@@ -0,0 +1,65 @@
+package com.axontic.ecommerce.benchmark;
+
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.entity.Product;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.service.impl.ProductServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Service-level cost of the product read paths: listing with DTO mapping, name search and
+ * top-10 suggestions from the suggestion index, over an in-memory catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"1000", "10000"})
+    private int catalogSize;
+
+    private ProductServiceImpl productService;
+    private List<Long> excludedProductIds;
+    private List<ItemType> itemTypes;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.quietLogging();
+        List<Product> catalog = BenchmarkFixtures.products(catalogSize);
+        productService = BenchmarkFixtures.productService(catalog);
+        excludedProductIds = LongStream.rangeClosed(1, 50).boxed().toList();
+        itemTypes = List.of(ItemType.TECH, ItemType.BEAUTY);
+    }
+
+    @Benchmark
+    public List<ProductDTO> getAllProducts() {
+        return productService.getAllProducts();
+    }
+
+    @Benchmark
+    public List<ProductDTO> searchProductsByName() {
+        return productService.searchProductsByName("product 12", 50);
+    }
+
+    @Benchmark
+    public List<ProductDTO> findSuggestedProducts() {
+        return productService.findSuggestedProducts(excludedProductIds, itemTypes, 10);
+    }
+}
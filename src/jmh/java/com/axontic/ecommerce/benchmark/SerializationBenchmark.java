@@ -0,0 +1,112 @@
+package com.axontic.ecommerce.benchmark;
+
+import com.axontic.ecommerce.entity.Customer;
+import com.axontic.ecommerce.entity.Product;
+import com.axontic.ecommerce.mapper.CartItemMapper;
+import com.axontic.ecommerce.mapper.ProductMapper;
+import com.axontic.ecommerce.mapper.ShoppingCartMapper;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.model.ShoppingCartDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialize and deserialize cost of the catalog and cart payloads in each negotiated format:
+ * a 1000-product listing and a customer's 50 carts of 10 items. Bytes on the wire, raw and
+ * gzipped as the server compression would send them, are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    public enum Format {
+        JSON, CBOR, SMILE
+    }
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private Format format;
+
+    private ObjectMapper objectMapper;
+    private JavaType productListType;
+    private JavaType cartListType;
+
+    private List<ProductDTO> products;
+    private List<ShoppingCartDTO> carts;
+    private byte[] productBytes;
+    private byte[] cartBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = switch (format) {
+            case JSON -> Jackson2ObjectMapperBuilder.json();
+            case CBOR -> Jackson2ObjectMapperBuilder.cbor();
+            case SMILE -> Jackson2ObjectMapperBuilder.smile();
+        };
+        // Same date handling as the application's Boot-configured mappers
+        objectMapper = builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        productListType = objectMapper.getTypeFactory().constructCollectionType(List.class, ProductDTO.class);
+        cartListType = objectMapper.getTypeFactory().constructCollectionType(List.class, ShoppingCartDTO.class);
+
+        ProductMapper productMapper = new ProductMapper();
+        List<Product> catalog = BenchmarkFixtures.products(1000);
+        Customer customer = BenchmarkFixtures.customerWithCarts(1L, 50, 10, catalog);
+        products = productMapper.toDTOList(catalog);
+        carts = new ShoppingCartMapper(new CartItemMapper(productMapper)).toDTOList(customer.getShoppingCarts());
+
+        productBytes = objectMapper.writeValueAsBytes(products);
+        cartBytes = objectMapper.writeValueAsBytes(carts);
+        System.out.printf("%n%s bytes: products %d (gzip %d), carts %d (gzip %d)%n", format,
+                productBytes.length, gzippedSize(productBytes), cartBytes.length, gzippedSize(cartBytes));
+    }
+
+    private static int gzippedSize(byte[] bytes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(bytes);
+        }
+        return buffer.size();
+    }
+
+    @Benchmark
+    public byte[] serializeProducts() throws IOException {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public List<ProductDTO> deserializeProducts() throws IOException {
+        return objectMapper.readValue(productBytes, productListType);
+    }
+
+    @Benchmark
+    public byte[] serializeCarts() throws IOException {
+        return objectMapper.writeValueAsBytes(carts);
+    }
+
+    @Benchmark
+    public List<ShoppingCartDTO> deserializeCarts() throws IOException {
+        return objectMapper.readValue(cartBytes, cartListType);
+    }
+}
@@ -0,0 +1,195 @@
+package com.axontic.ecommerce.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed-loop HTTP load test against a running instance. For each concurrency level, that many
+ * clients send requests back to back for a fixed time; the report shows throughput, p50/p99
+ * latency and errors per level, and the highest level that stayed within the p99 budget.
+ *
+ * <p>To compare execution modes, run it once against an instance started with
+ * {@code --spring.threads.virtual.enabled=false} and once with {@code true}, keeping
+ * {@code DB_POOL_SIZE} the same for both:
+ * <pre>
+ * ./mvnw -Ploadtest -DskipTests verify -Dloadtest.label=virtual \
+ *     -Dloadtest.paths=/products/1,/api/shopping-cart/1/carts -Dloadtest.concurrency=50,200,800,2000
+ * </pre>
+ *
+ * <p>To compare the servlet and reactive read paths, run it against the same instance with
+ * {@code -Dloadtest.paths=/products/1,/products/search?name=keyboard} and then
+ * {@code -Dloadtest.paths=/reactive/products/1,/reactive/products/search?name=keyboard}. Pin the
+ * server to a known number of cores (e.g. {@code taskset}) and pass it as {@code server-cores}
+ * so throughput is also reported per core.
+ *
+ * <p>Options (all {@code --name=value}): {@code base-url}, {@code paths} (comma separated, round-robin),
+ * {@code concurrency} (comma separated levels), {@code duration} and {@code warmup} (ISO-8601),
+ * {@code p99-budget-ms}, {@code server-cores} (0 to omit per-core throughput), {@code label}.
+ */
+public final class LoadTest {
+
+    private final HttpClient client;
+    private final List<URI> targets;
+
+    private LoadTest(String baseUrl, List<String> paths) {
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.targets = paths.stream().map(path -> URI.create(baseUrl + path)).toList();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = option(args, "base-url", "http://localhost:8080");
+        List<String> paths = Arrays.asList(option(args, "paths", "/products/1").split(","));
+        int[] levels = Arrays.stream(option(args, "concurrency", "50,200,800,2000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        Duration duration = Duration.parse(option(args, "duration", "PT30S"));
+        Duration warmup = Duration.parse(option(args, "warmup", "PT10S"));
+        long p99BudgetMs = Long.parseLong(option(args, "p99-budget-ms", "250"));
+        int serverCores = Integer.parseInt(option(args, "server-cores", "0"));
+        String label = option(args, "label", "run");
+
+        LoadTest loadTest = new LoadTest(baseUrl, paths);
+        System.out.printf("Load test '%s' against %s%s, %s per level%n", label, baseUrl, paths, duration);
+        loadTest.run(levels[0], warmup);
+
+        System.out.printf("%-10s %12s %12s %10s %10s %10s %10s%n",
+                "clients", "req/s", "req/s/core", "p50 ms", "p99 ms", "max ms", "errors");
+        int maxWithinBudget = 0;
+        for (int level : levels) {
+            Result result = loadTest.run(level, duration);
+            String perCore = serverCores > 0 ? String.format(Locale.ROOT, "%.1f", result.throughput() / serverCores) : "-";
+            System.out.printf(Locale.ROOT, "%-10d %12.1f %12s %10.1f %10.1f %10.1f %10d%n", level, result.throughput(),
+                    perCore, result.percentileMillis(0.50), result.percentileMillis(0.99), result.percentileMillis(1.0), result.errors());
+            boolean withinBudget = result.percentileMillis(0.99) <= p99BudgetMs && result.errors() * 100 <= result.count();
+            if (withinBudget) {
+                maxWithinBudget = level;
+            }
+        }
+        System.out.printf("%s: max concurrency with p99 <= %d ms and <= 1%% errors: %d%n", label, p99BudgetMs, maxWithinBudget);
+    }
+
+    private Result run(int clients, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Recorder>> futures = new ArrayList<>(clients);
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int offset = i;
+                futures.add(executor.submit(() -> drive(offset, deadline)));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+        Recorder total = new Recorder();
+        for (Future<Recorder> future : futures) {
+            total.merge(future.get());
+        }
+        return new Result(total, elapsedSeconds);
+    }
+
+    private Recorder drive(int offset, long deadline) {
+        Recorder recorder = new Recorder();
+        for (int n = offset; System.nanoTime() < deadline; n++) {
+            HttpRequest request = HttpRequest.newBuilder(targets.get(n % targets.size()))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            long start = System.nanoTime();
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                recorder.record(System.nanoTime() - start, status < 500);
+            } catch (IOException e) {
+                recorder.record(System.nanoTime() - start, false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return recorder;
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix) && arg.length() > prefix.length()) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    /** Latencies in a log-linear histogram: about 2% resolution from 10us upwards, in constant memory. */
+    private static final class Recorder {
+        private static final int SUB_BUCKETS = 100;
+        private static final int DECADES = 8;
+        private final long[] counts = new long[SUB_BUCKETS * DECADES];
+        private long errors;
+
+        void record(long nanos, boolean ok) {
+            counts[bucket(nanos)]++;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        void merge(Recorder other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            errors += other.errors;
+        }
+
+        private static int bucket(long nanos) {
+            double micros = Math.max(nanos / 1_000.0, 10.0);
+            int bucket = (int) (Math.log10(micros / 10.0) * SUB_BUCKETS);
+            return Math.min(bucket, SUB_BUCKETS * DECADES - 1);
+        }
+
+        private static double bucketUpperMillis(int bucket) {
+            return 10.0 * Math.pow(10, (bucket + 1) / (double) SUB_BUCKETS) / 1_000.0;
+        }
+    }
+
+    private record Result(Recorder recorder, double elapsedSeconds) {
+
+        long count() {
+            return Arrays.stream(recorder.counts).sum();
+        }
+
+        long errors() {
+            return recorder.errors;
+        }
+
+        double throughput() {
+            return count() / elapsedSeconds;
+        }
+
+        double percentileMillis(double percentile) {
+            long total = count();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile * total));
+            long seen = 0;
+            for (int i = 0; i < recorder.counts.length; i++) {
+                seen += recorder.counts[i];
+                if (seen >= rank) {
+                    return Recorder.bucketUpperMillis(i);
+                }
+            }
+            return Recorder.bucketUpperMillis(recorder.counts.length - 1);
+        }
+    }
+}
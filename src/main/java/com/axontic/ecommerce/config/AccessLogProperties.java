@@ -0,0 +1,74 @@
+package com.axontic.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for the asynchronous access log written by {@link LoggingInterceptor}.
+ * Routes are the matched handler patterns, e.g. {@code /products/{id}}.
+ */
+@ConfigurationProperties(prefix = "ecommerce.access-log")
+public class AccessLogProperties {
+
+    /** Whether requests are access-logged at all. */
+    private boolean enabled = true;
+
+    /** Entries buffered for the writer thread; further entries are dropped and counted. */
+    private int queueCapacity = 8192;
+
+    /** Fraction of requests logged on routes without their own rate. */
+    private double defaultSampleRate = 1.0;
+
+    /** Per-route fractions of requests logged, from 0 (none) to 1 (all). */
+    private Map<String, Double> sampleRates = new LinkedHashMap<>();
+
+    /** Requests at least this slow are always logged, as are failed ones. */
+    private Duration slowThreshold = Duration.ofSeconds(1);
+
+    public double sampleRateFor(String route) {
+        return sampleRates.getOrDefault(route, defaultSampleRate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public double getDefaultSampleRate() {
+        return defaultSampleRate;
+    }
+
+    public void setDefaultSampleRate(double defaultSampleRate) {
+        this.defaultSampleRate = defaultSampleRate;
+    }
+
+    public Map<String, Double> getSampleRates() {
+        return sampleRates;
+    }
+
+    public void setSampleRates(Map<String, Double> sampleRates) {
+        this.sampleRates = sampleRates;
+    }
+
+    public Duration getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(Duration slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+}
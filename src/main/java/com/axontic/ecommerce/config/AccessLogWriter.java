@@ -0,0 +1,116 @@
+package com.axontic.ecommerce.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves access-log formatting and appender I/O off the request thread. Requests hand a
+ * small immutable entry to a bounded queue without blocking; a single daemon thread drains
+ * it and writes one key=value line per request to the {@code access} logger. When the
+ * queue is full the entry is dropped and counted rather than slowing the request down.
+ */
+@Component
+public class AccessLogWriter implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogWriter.class);
+    private static final Logger accessLogger = LoggerFactory.getLogger("access");
+    private static final int DRAIN_BATCH = 256;
+
+    private final BlockingQueue<Entry> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public AccessLogWriter(AccessLogProperties properties) {
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.drainer = Thread.ofPlatform().name("access-log-writer").daemon().start(this::drain);
+    }
+
+    /**
+     * Queues an entry for writing. Never blocks.
+     */
+    public void record(Entry entry) {
+        if (!queue.offer(entry)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(DRAIN_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, DRAIN_BATCH - 1);
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Shutting down: the loop drains whatever is left
+                running = false;
+            } catch (RuntimeException e) {
+                logger.warn("Failed to write access log entries: {}", e.getMessage());
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        long droppedSinceLast = dropped.getAndSet(0);
+        if (droppedSinceLast > 0) {
+            logger.warn("Access log queue full, dropped {} entries", droppedSinceLast);
+        }
+        if (!accessLogger.isInfoEnabled()) {
+            return;
+        }
+        for (Entry entry : batch) {
+            accessLogger.info(entry.format());
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        drainer.interrupt();
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * One completed request. {@code error} is null unless the handler threw.
+     */
+    public record Entry(long endEpochMillis, String method, String route, String uri, int status,
+                        long latencyNanos, double sampleRate, String error) {
+
+        String format() {
+            StringBuilder line = new StringBuilder(160)
+                    .append("ts=").append(Instant.ofEpochMilli(endEpochMillis))
+                    .append(" method=").append(method)
+                    .append(" route=").append(route)
+                    .append(" uri=").append(uri)
+                    .append(" status=").append(status)
+                    .append(" latency_ms=").append(String.format(Locale.ROOT, "%.3f", latencyNanos / 1_000_000.0))
+                    .append(" sample=").append(sampleRate);
+            if (error != null) {
+                line.append(" error=").append(error);
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.axontic.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the write-behind cart engine, selected with {@code ecommerce.cart.engine=write-behind}.
+ */
+@ConfigurationProperties(prefix = "ecommerce.cart.write-behind")
+public class CartWriteBehindProperties {
+
+    /** How often dirty carts are written to the database. */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /** Customers with unwritten changes that trigger a flush before the interval is up. */
+    private int flushThreshold = 500;
+
+    /** Locks guarding the in-memory carts; customers are spread over them by ID. */
+    private int lockStripes = 64;
+
+    /** Cart and cart item IDs fetched from their sequences per round trip. */
+    private int idBlockSize = 100;
+
+    /** Customers whose carts are all written and untouched for this long are dropped from memory. */
+    private Duration idleEviction = Duration.ofMinutes(15);
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    public void setFlushThreshold(int flushThreshold) {
+        this.flushThreshold = flushThreshold;
+    }
+
+    public int getLockStripes() {
+        return lockStripes;
+    }
+
+    public void setLockStripes(int lockStripes) {
+        this.lockStripes = lockStripes;
+    }
+
+    public int getIdBlockSize() {
+        return idBlockSize;
+    }
+
+    public void setIdBlockSize(int idBlockSize) {
+        this.idBlockSize = idBlockSize;
+    }
+
+    public Duration getIdleEviction() {
+        return idleEviction;
+    }
+
+    public void setIdleEviction(Duration idleEviction) {
+        this.idleEviction = idleEviction;
+    }
+}
@@ -0,0 +1,74 @@
+package com.axontic.ecommerce.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC access with read-only transactions served by replicas.
+ *
+ * <p>The primary pool is configured from {@code spring.datasource} as Spring Boot would. The
+ * {@link Primary} {@code dataSource} used by JPA, JdbcTemplate and Flyway routes through
+ * {@link ReplicaRoutingDataSource} behind a {@link LazyConnectionDataSourceProxy}. Replica pools
+ * stay private to this class, like the R2DBC pool in {@link ReactiveDataConfig}.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class DataSourceConfig implements DisposableBean {
+
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(properties.getName())) {
+            dataSource.setPoolName(properties.getName());
+        }
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSourceProperties properties,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>(properties.getReplicas().size());
+        for (ReplicaDataSourceProperties.Replica replica : properties.getReplicas()) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(replica.getUrl());
+            config.setUsername(replica.getUsername() != null ? replica.getUsername() : primaryDataSource.getUsername());
+            config.setPassword(replica.getPassword() != null ? replica.getPassword() : primaryDataSource.getPassword());
+            config.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+            config.setMinimumIdle(primaryDataSource.getMinimumIdle());
+            config.setConnectionTimeout(properties.getReplicaConnectionTimeout().toMillis());
+            // Start even when a replica is down; its reads fall back to the primary
+            config.setInitializationFailTimeout(-1);
+            meterRegistry.ifAvailable(config::setMetricRegistry);
+            HikariDataSource pool = new HikariDataSource(config);
+            replicaPools.add(pool);
+            replicas.add(pool);
+        }
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primaryDataSource, replicas, properties.getReplicaRetryInterval()));
+    }
+
+    @Override
+    public void destroy() {
+        replicaPools.forEach(HikariDataSource::close);
+    }
+}
@@ -2,28 +2,54 @@ package com.axontic.ecommerce.config;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
 
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emits one access-log line per request, carrying its latency, through {@link AccessLogWriter}.
+ * Requests are sampled per route; failed (5xx or exception) and slow requests are always logged.
+ */
 @Component
 public class LoggingInterceptor implements HandlerInterceptor {
 
-    private static final Logger logger = LoggerFactory.getLogger(LoggingInterceptor.class);
+    private static final String START_ATTRIBUTE = LoggingInterceptor.class.getName() + ".start";
+
+    private final AccessLogWriter accessLogWriter;
+    private final AccessLogProperties properties;
+
+    public LoggingInterceptor(AccessLogWriter accessLogWriter, AccessLogProperties properties) {
+        this.accessLogWriter = accessLogWriter;
+        this.properties = properties;
+    }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        logger.info("Incoming request: Method: {}, URL: {}, Params: {}",
-                request.getMethod(),
-                request.getRequestURI(),
-                request.getQueryString());
+        // Async requests pass through again on their completion dispatch; keep the original start
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
         return true;
     }
 
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
-        logger.info("Response Status: {} for URL: {}", response.getStatus(), request.getRequestURI());
+        if (!properties.isEnabled() || !(request.getAttribute(START_ATTRIBUTE) instanceof Long start)) {
+            return;
+        }
+        long latencyNanos = System.nanoTime() - start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : request.getRequestURI();
+        double sampleRate = properties.sampleRateFor(route);
+
+        boolean alwaysLog = ex != null || response.getStatus() >= 500
+                || latencyNanos >= properties.getSlowThreshold().toNanos();
+        if (alwaysLog || sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            accessLogWriter.record(new AccessLogWriter.Entry(System.currentTimeMillis(), request.getMethod(), route,
+                    request.getRequestURI(), response.getStatus(), latencyNanos, sampleRate,
+                    ex == null ? null : ex.getClass().getSimpleName()));
+        }
     }
 }
-
@@ -0,0 +1,54 @@
+package com.axontic.ecommerce.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+/**
+ * R2DBC access for the non-blocking product read path, against the same database and
+ * Flyway-managed schema as the JPA side.
+ *
+ * <p>Only the {@link DatabaseClient} is exposed as a bean. Spring Boot's JDBC
+ * {@code DataSource} auto-configuration backs off when it sees an R2DBC
+ * {@code ConnectionFactory} bean, so the pool stays private to this class and the
+ * R2DBC auto-configuration is excluded on the application class.
+ */
+@Configuration
+public class ReactiveDataConfig implements DisposableBean {
+
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(
+            @Value("${ecommerce.reactive.url}") String url,
+            @Value("${ecommerce.reactive.username:${spring.datasource.username}}") String username,
+            @Value("${ecommerce.reactive.password:${spring.datasource.password}}") String password,
+            @Value("${ecommerce.reactive.pool-size:20}") int poolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(Math.min(poolSize, 5))
+                .maxSize(poolSize)
+                .maxAcquireTime(Duration.ofSeconds(10))
+                .maxIdleTime(Duration.ofMinutes(10))
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
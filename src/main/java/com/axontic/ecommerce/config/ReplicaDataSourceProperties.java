@@ -0,0 +1,82 @@
+package com.axontic.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for {@link ReplicaRoutingDataSource}. Each replica gets its own pool, sized
+ * like the primary's; credentials default to {@code spring.datasource}'s.
+ */
+@ConfigurationProperties(prefix = "ecommerce.datasource")
+public class ReplicaDataSourceProperties {
+
+    /** Replicas serving read-only transactions; with none, everything goes to the primary. */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /** How long to wait for a replica connection before trying the next replica or the primary. */
+    private Duration replicaConnectionTimeout = Duration.ofSeconds(2);
+
+    /** How long a replica that failed to hand out a connection is skipped. */
+    private Duration replicaRetryInterval = Duration.ofSeconds(30);
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public Duration getReplicaConnectionTimeout() {
+        return replicaConnectionTimeout;
+    }
+
+    public void setReplicaConnectionTimeout(Duration replicaConnectionTimeout) {
+        this.replicaConnectionTimeout = replicaConnectionTimeout;
+    }
+
+    public Duration getReplicaRetryInterval() {
+        return replicaRetryInterval;
+    }
+
+    public void setReplicaRetryInterval(Duration replicaRetryInterval) {
+        this.replicaRetryInterval = replicaRetryInterval;
+    }
+
+    public static class Replica {
+
+        /** JDBC URL of the replica. */
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
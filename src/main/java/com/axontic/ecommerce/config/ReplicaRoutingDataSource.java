@@ -0,0 +1,92 @@
+package com.axontic.ecommerce.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hands out replica connections, round-robin, inside read-only transactions and primary
+ * connections everywhere else. A replica that cannot be connected to is skipped for the retry
+ * interval; one whose pool is merely exhausted is passed over for this read only. When no replica
+ * can serve, the read goes to the primary.
+ *
+ * <p>The transaction's read-only flag is only published after the transaction manager has asked
+ * for its connection, so this must sit behind a {@link LazyConnectionDataSourceProxy}, which
+ * defers the physical connection to the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final long retryIntervalNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Per replica, the {@link System#nanoTime()} before which it is skipped; 0 when available.
+     */
+    private final AtomicLongArray unavailableUntil;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration retryInterval) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.retryIntervalNanos = retryInterval.toNanos();
+        this.unavailableUntil = new AtomicLongArray(replicas.size());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            long skipUntil = unavailableUntil.get(index);
+            if (skipUntil != 0 && System.nanoTime() - skipUntil < 0) {
+                continue;
+            }
+            try {
+                Connection connection = replicas.get(index).getConnection();
+                unavailableUntil.set(index, 0);
+                return connection;
+            } catch (SQLException ex) {
+                if (isPoolExhausted(ex)) {
+                    logger.debug("Replica {} has no free connection, trying the next: {}", index + 1, ex.getMessage());
+                    continue;
+                }
+                logger.warn("Replica {} unavailable, skipping it for {} ms: {}",
+                        index + 1, retryIntervalNanos / 1_000_000, ex.getMessage());
+                unavailableUntil.set(index, System.nanoTime() + retryIntervalNanos);
+            }
+        }
+        logger.debug("No replica available, reading from the primary");
+        return primary.getConnection();
+    }
+
+    /**
+     * Whether the pool timed out waiting for a connection while the replica itself is reachable.
+     * Hikari reports both that and a failing database as {@link SQLTransientConnectionException},
+     * but only attaches a cause, the last connection failure, in the second case.
+     */
+    private static boolean isPoolExhausted(SQLException ex) {
+        return ex instanceof SQLTransientConnectionException && ex.getCause() == null;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+}
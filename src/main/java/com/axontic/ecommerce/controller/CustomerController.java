@@ -1,8 +1,12 @@
 package com.axontic.ecommerce.controller;
 
+import com.axontic.ecommerce.exception.InvalidInputException;
 import com.axontic.ecommerce.model.CustomerDTO;
+import com.axontic.ecommerce.model.CustomerSummaryDTO;
+import com.axontic.ecommerce.model.PageResponseDTO;
 import com.axontic.ecommerce.service.CustomerService;
 import com.axontic.ecommerce.service.ShoppingCartService;
+import com.axontic.ecommerce.util.Constants;
 import jakarta.validation.Valid;
 
 import org.slf4j.Logger;
@@ -12,6 +16,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 
 @RestController
@@ -32,10 +37,10 @@ public class CustomerController {
      */
     @GetMapping
     public ResponseEntity<List<CustomerDTO>> getAllCustomers() {
-        logger.info("Received request to fetch all customers.");
+        logger.debug("Received request to fetch all customers.");
         try {
             List<CustomerDTO> customers = service.getAllCustomers();
-            logger.info("Successfully fetched {} customers.", customers.size());
+            logger.debug("Successfully fetched {} customers.", customers.size());
             return ResponseEntity.ok(customers);
         } catch (Exception ex) {
             logger.error("Error occurred while fetching customers: {}", ex.getMessage(), ex);
@@ -43,6 +48,38 @@ public class CustomerController {
         }
     }
 
+    /**
+     * Get a page of customer summaries, without shopping carts unless requested
+     * @param page Zero-based page number
+     * @param size Customers per page
+     * @param include Optional related data to include; only "carts" is supported
+     * @return Page of customer summaries
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<PageResponseDTO<CustomerSummaryDTO>> getCustomerSummaries(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + Constants.DEFAULT_CUSTOMER_PAGE_SIZE) int size,
+            @RequestParam(required = false) String include) {
+        logger.debug("Received request to fetch customer summaries (page {}, size {}, include {}).", page, size, include);
+        if (include != null && !include.isBlank() && !"carts".equals(include)) {
+            throw new InvalidInputException("Unsupported include: " + include + ". Only 'carts' is supported.");
+        }
+        PageResponseDTO<CustomerSummaryDTO> summaries = service.getCustomerSummaries(page, size, "carts".equals(include));
+        logger.debug("Successfully fetched {} customer summaries.", summaries.getItems().size());
+        return ResponseEntity.ok(summaries);
+    }
+
+    /**
+     * Export all customers as newline-delimited JSON, without their shopping carts.
+     * @return Stream of customers, one JSON object per line
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        logger.debug("Received request to export all customers.");
+        StreamingResponseBody body = service::exportCustomers;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     /**
      * Get a customer by ID
      * @param id Customer ID
@@ -51,10 +88,10 @@ public class CustomerController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<CustomerDTO> getCustomerById(@PathVariable Long id) {
-        logger.info("Received request to fetch customer with ID: {}", id);
+        logger.debug("Received request to fetch customer with ID: {}", id);
         try {
             CustomerDTO customer = service.getCustomerById(id);
-            logger.info("Successfully fetched customer: {}", customer);
+            logger.debug("Successfully fetched customer with ID: {}", id);
             return ResponseEntity.ok(customer);
         } catch (Exception ex) {
             logger.error("Error occurred while fetching customer with ID {}: {}", id, ex.getMessage(), ex);
@@ -69,10 +106,10 @@ public class CustomerController {
      */
     @PostMapping(consumes = "application/json", produces = "application/json")
     public ResponseEntity<CustomerDTO> createCustomer(@Valid @RequestBody CustomerDTO customer) {
-        logger.info("Received request to create a new customer: {}", customer);
+        logger.debug("Received request to create a new customer.");
         try {
             CustomerDTO createdCustomer = service.saveCustomer(customer);
-            logger.info("Successfully created customer with ID: {}", createdCustomer.getCustomerId());
+            logger.debug("Successfully created customer with ID: {}", createdCustomer.getCustomerId());
             return ResponseEntity.status(HttpStatus.CREATED).body(createdCustomer);
         } catch (Exception ex) {
             logger.error("Error occurred while creating customer: {}", ex.getMessage(), ex);
@@ -90,10 +127,10 @@ public class CustomerController {
     public ResponseEntity<CustomerDTO> updateCustomer(
             @PathVariable Long id,
             @Valid @RequestBody CustomerDTO updatedCustomer) {
-        logger.info("Received request to update customer with ID: {}", id);
+        logger.debug("Received request to update customer with ID: {}", id);
         try {
             CustomerDTO customer = service.updateCustomer(id, updatedCustomer);
-            logger.info("Successfully updated customer with ID: {}", id);
+            logger.debug("Successfully updated customer with ID: {}", id);
             return ResponseEntity.ok(customer);
         } catch (Exception ex) {
             logger.error("Error occurred while updating customer with ID {}: {}", id, ex.getMessage(), ex);
@@ -108,10 +145,10 @@ public class CustomerController {
          */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCustomer(@PathVariable Long id) {
-        logger.info("Received request to delete customer with ID: {}", id);
+        logger.debug("Received request to delete customer with ID: {}", id);
         try {
             service.deleteCustomer(id);
-            logger.info("Successfully deleted customer with ID: {}", id);
+            logger.debug("Successfully deleted customer with ID: {}", id);
             return ResponseEntity.noContent().build();
         } catch (Exception ex) {
             logger.error("Error occurred while deleting customer with ID {}: {}", id, ex.getMessage(), ex);
@@ -1,22 +1,44 @@
 package com.axontic.ecommerce.controller;
 
 import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.exception.InvalidInputException;
 import com.axontic.ecommerce.exception.ProductNotFoundException;
+import com.axontic.ecommerce.mapper.ProductMapper;
+import com.axontic.ecommerce.model.BulkImportResultDTO;
 import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.model.ProductPageDTO;
+import com.axontic.ecommerce.repository.projection.ProductCatalogVersion;
 import com.axontic.ecommerce.service.ProductService;
+import com.axontic.ecommerce.util.Constants;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 
 /**
  * Controller to handle HTTP requests related to Product management.
  * Supports CRUD operations and search functionality.
+ * Product reads carry weak ETags and answer conditional requests with 304. Only a single product
+ * also carries Last-Modified: a collection's newest modification time does not move when a product
+ * is deleted or leaves the page, so If-Modified-Since could answer a stale 304 for it.
+ * The validators are weak because the same product is served gzipped or not and as JSON, CBOR or
+ * Smile (Tomcat only compresses responses without a strong ETag), and the reads vary by Accept.
  */
 @RestController
 @RequestMapping("/products")
@@ -35,10 +57,10 @@ public class ProductController {
      */
     @PostMapping(consumes = "application/json", produces = "application/json")
     public ResponseEntity<List<ProductDTO>> createProduct(@Valid @RequestBody List<ProductDTO> productDTOList) {
-        logger.info("Received request to create a new product: {}", productDTOList);
+        logger.debug("Received request to create {} product(s).", productDTOList.size());
        try {
             List<ProductDTO> createdProduct = productService.saveProduct(productDTOList);
-            logger.info("Product created successfully with ID: {}");
+            logger.debug("Product created successfully with ID: {}");
             return ResponseEntity.ok(createdProduct);
        } catch (Exception e) {
             logger.error("Error while creating product: {}", e.getMessage(), e);
@@ -47,20 +69,47 @@ public class ProductController {
     }
 
     /**
-     * Get a product by its ID.
+     * Bulk-import products, committing every {@code chunkSize} rows.
+     * Accepts a JSON array or newline-delimited JSON, read as a stream.
      *
-     * @param id the unique ID of the product
-     * @return ResponseEntity containing the requested product DTO
+     * @param inputStream the request body
+     * @param chunkSize   the number of rows committed per transaction
+     * @return ResponseEntity with the import counts and any failed chunks
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkImportResultDTO> importProducts(
+            InputStream inputStream,
+            @RequestParam(defaultValue = "" + Constants.DEFAULT_IMPORT_CHUNK_SIZE) int chunkSize) throws IOException {
+        logger.debug("Received bulk product import with chunk size {}", chunkSize);
+        BulkImportResultDTO result = productService.importProducts(inputStream, chunkSize);
+        logger.debug("Bulk import imported {} of {} products", result.getImported(), result.getReceived());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Get a product by its ID. The conditional request is checked against the product's
+     * modification time before the product itself is loaded.
+     *
+     * @param id         the unique ID of the product
+     * @param webRequest the current request, for If-None-Match / If-Modified-Since
+     * @return ResponseEntity containing the requested product DTO, or 304 when unchanged
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProduct(@PathVariable Long id) {
-        logger.info("Fetching product with ID: {}", id);
+    public ResponseEntity<ProductDTO> getProduct(@PathVariable Long id, WebRequest webRequest) {
+        logger.debug("Fetching product with ID: {}", id);
+        varyByAccept(webRequest);
         try {
+            Instant lastModified = productService.getProductLastModified(id);
+            if (webRequest.checkNotModified(productETag(id, lastModified), toEpochMilli(lastModified))) {
+                logger.debug("Product with ID {} not modified", id);
+                return null;
+            }
             ProductDTO productDTO = productService.getProductById(id);
             if (productDTO == null) {
                 throw new ProductNotFoundException("Product not found with ID: " + id);
             }
-            logger.info("Product fetched successfully: {}", productDTO);
+            logger.debug("Product with ID {} fetched successfully", id);
             return ResponseEntity.ok(productDTO);
         } catch (ProductNotFoundException ex) {
             logger.error("Product not found with ID {}: {}", id, ex.getMessage());
@@ -72,16 +121,26 @@ public class ProductController {
     }
 
     /**
-     * Retrieve a list of all products.
+     * Retrieve a list of all products. The conditional request is checked against the catalog's
+     * size and latest modification time before any product is loaded.
      *
-     * @return ResponseEntity containing the list of product DTOs
+     * @param webRequest the current request, for If-None-Match
+     * @return ResponseEntity containing the list of product DTOs, or 304 when unchanged
      */
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        logger.info("Fetching all products");
+    public ResponseEntity<List<ProductDTO>> getAllProducts(WebRequest webRequest) {
+        logger.debug("Fetching all products");
+        varyByAccept(webRequest);
         try {
+            ProductCatalogVersion version = productService.getCatalogVersion();
+            Instant lastModified = ProductMapper.toInstant(version.getLastUpdated());
+            String eTag = "W/\"catalog-" + version.getProductCount() + "-" + toEpochMilli(lastModified) + "\"";
+            if (webRequest.checkNotModified(eTag)) {
+                logger.debug("Product catalog not modified");
+                return null;
+            }
             List<ProductDTO> products = productService.getAllProducts();
-            logger.info("Successfully fetched {} products", products.size());
+            logger.debug("Successfully fetched {} products", products.size());
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             logger.error("Error while fetching all products: {}", e.getMessage(), e);
@@ -89,22 +148,75 @@ public class ProductController {
         }
     }
 
+    /**
+     * Retrieve one page of products using keyset pagination.
+     * Selected whenever the request carries a {@code limit} parameter.
+     *
+     * @param limit  the maximum number of products in the page
+     * @param cursor the {@code nextCursor} from the previous page, omitted for the first page
+     * @param sort       the sort order: id (default), price or rating
+     * @param webRequest the current request, for If-None-Match
+     * @return ResponseEntity containing the page and the cursor for the next page, or 304 when unchanged
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<ProductPageDTO> getProductPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") String sort,
+            WebRequest webRequest) {
+        logger.debug("Fetching product page sorted by {} with limit {}", sort, limit);
+        varyByAccept(webRequest);
+        try {
+            ProductPageDTO page = productService.getProductPage(sort, cursor, limit);
+            logger.debug("Successfully fetched {} products", page.getItems().size());
+            if (webRequest.checkNotModified(listETag(page.getItems(), page.getNextCursor()))) {
+                return null;
+            }
+            return ResponseEntity.ok(page);
+        } catch (Exception e) {
+            logger.error("Error while fetching product page: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Export all products as newline-delimited JSON.
+     * Rows are streamed from the database and written as they are read.
+     *
+     * @return ResponseEntity streaming one product JSON object per line
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        logger.debug("Received request to export all products");
+        StreamingResponseBody body = productService::exportProducts;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     /**
      * Search products by name.
      *
-     * @param name the name of the product(s) to search for
-     * @return ResponseEntity containing the matching product DTOs
+     * @param name  the name of the product(s) to search for
+     * @param limit      the maximum number of products to return, best matches first
+     * @param webRequest the current request, for If-None-Match
+     * @return ResponseEntity containing the matching product DTOs, or 304 when unchanged
      */
     @GetMapping("/search")
-    public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String name) {
-        logger.info("Searching for products with name: {}", name);
+    public ResponseEntity<List<ProductDTO>> searchProducts(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "" + Constants.DEFAULT_SEARCH_LIMIT) int limit,
+            WebRequest webRequest) {
+        logger.debug("Searching for products with name: {}", name);
+        varyByAccept(webRequest);
         try {
-            List<ProductDTO> products = productService.searchProductsByName(name);
+            List<ProductDTO> products = productService.searchProductsByName(name, limit);
             if (products.isEmpty()) {
                 logger.warn("No products found with name: {}", name);
                 throw new ProductNotFoundException("No products found with name: " + name);
             }
-            logger.info("Found {} product(s) matching the name '{}'", products.size(), name);
+            logger.debug("Found {} product(s) matching the name '{}'", products.size(), name);
+            if (webRequest.checkNotModified(listETag(products, null))) {
+                return null;
+            }
             return ResponseEntity.ok(products);
         } catch (ProductNotFoundException ex) {
             logger.error("No products found with name '{}': {}", name, ex.getMessage());
@@ -124,10 +236,10 @@ public class ProductController {
      */
     @PutMapping("/{id}")
     public ResponseEntity<ProductDTO> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductDTO productDTO) {
-        logger.info("Updating product with ID: {}", id);
+        logger.debug("Updating product with ID: {}", id);
         try {
             ProductDTO updatedProduct = productService.updateProduct(id, productDTO);
-            logger.info("Product updated successfully with ID: {}", updatedProduct.getItemNumber());
+            logger.debug("Product updated successfully with ID: {}", updatedProduct.getItemNumber());
             return ResponseEntity.ok(updatedProduct);
         } catch (Exception e) {
             logger.error("Error while updating product with ID {}: {}", id, e.getMessage(), e);
@@ -143,10 +255,10 @@ public class ProductController {
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
-        logger.info("Deleting product with ID: {}", id);
+        logger.debug("Deleting product with ID: {}", id);
         try {
             productService.deleteProduct(id);
-            logger.info("Product deleted successfully with ID: {}", id);
+            logger.debug("Product deleted successfully with ID: {}", id);
             return ResponseEntity.noContent().build();
         } catch (Exception e) {
             logger.error("Error while deleting product with ID {}: {}", id, e.getMessage(), e);
@@ -157,25 +269,70 @@ public class ProductController {
     /**
      * Get suggested products based on excluded product IDs and item types.
      *
-     * @param excludedProductIds List of product IDs to exclude from suggestions (e.g., products already in cart).
+     * @param excludedProductIds List of product IDs to exclude from suggestions (e.g., products already in cart),
+     *                           at most {@value Constants#MAX_EXCLUDED_PRODUCT_IDS}.
      * @param itemTypes          List of item types (e.g., Tech, Beauty) to filter the suggestions.
+     * @param limit              Maximum number of suggestions, best rated first.
      * @return ResponseEntity containing the list of suggested product DTOs.
      */
     @GetMapping("/suggested")
     public ResponseEntity<List<ProductDTO>> getSuggestedProducts(
-            @RequestParam List<Long> excludedProductIds,
-            @RequestParam List<ItemType> itemTypes) {
+            @RequestParam(required = false, defaultValue = "") List<Long> excludedProductIds,
+            @RequestParam List<ItemType> itemTypes,
+            @RequestParam(defaultValue = "" + Constants.DEFAULT_SUGGESTION_LIMIT) int limit) {
 
+        if (excludedProductIds.size() > Constants.MAX_EXCLUDED_PRODUCT_IDS) {
+            throw new InvalidInputException("At most " + Constants.MAX_EXCLUDED_PRODUCT_IDS + " product IDs can be excluded");
+        }
         try {
-            List<ProductDTO> suggestedProducts = productService.findSuggestedProducts(excludedProductIds, itemTypes);
+            List<ProductDTO> suggestedProducts = productService.findSuggestedProducts(excludedProductIds, itemTypes, limit);
 
             if (suggestedProducts.isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
-            return ResponseEntity.ok(suggestedProducts);
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(suggestedProducts);
+        } catch (InvalidInputException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(500).body(List.of(new ProductDTO(null, "Error", 0.0, null, 0.0)));
         }
     }
 
+    private static String productETag(Long id, Instant lastModified) {
+        return "W/\"" + id + "-" + toEpochMilli(lastModified) + "\"";
+    }
+
+    /**
+     * Weak ETag over the IDs and modification times of the listed products, in order, plus
+     * the next-page cursor when there is one. Computed before the body is serialized.
+     */
+    private static String listETag(List<ProductDTO> products, String nextCursor) {
+        StringBuilder version = new StringBuilder(products.size() * 24);
+        for (ProductDTO product : products) {
+            version.append(product.getItemNumber()).append(':').append(toEpochMilli(product.getUpdatedAt())).append(',');
+        }
+        if (nextCursor != null) {
+            version.append(nextCursor);
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(version.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Marks the response, 304s included, as negotiated on Accept, so shared caches keep the JSON,
+     * CBOR and Smile bodies of a resource apart.
+     */
+    private static void varyByAccept(WebRequest webRequest) {
+        HttpServletResponse response = ((NativeWebRequest) webRequest).getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+    }
+
+    /**
+     * Epoch milliseconds, or -1 (no Last-Modified) when unknown.
+     */
+    private static long toEpochMilli(Instant instant) {
+        return instant == null ? -1 : instant.toEpochMilli();
+    }
+
 }
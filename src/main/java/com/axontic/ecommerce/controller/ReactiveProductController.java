@@ -0,0 +1,102 @@
+package com.axontic.ecommerce.controller;
+
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.exception.ProductNotFoundException;
+import com.axontic.ecommerce.exception.InvalidInputException;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.service.ReactiveProductService;
+import com.axontic.ecommerce.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking read API for the product catalog, next to {@link ProductController}.
+ * Handlers return Flux/Mono backed by R2DBC, so no request thread waits on the database;
+ * the servlet request completes asynchronously when the publisher does. List endpoints
+ * stream one JSON object per line when {@code application/x-ndjson} is requested.
+ */
+@RestController
+@RequestMapping(value = "/reactive/products", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+public class ReactiveProductController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveProductController.class);
+
+    private final ReactiveProductService productService;
+
+    public ReactiveProductController(ReactiveProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Get a page of products ordered by ID.
+     *
+     * @param afterId the last ID of the previous page, or 0 for the first page
+     * @param limit   the maximum number of products in the page
+     * @return the products in the page
+     */
+    @GetMapping
+    public Flux<ProductDTO> getProducts(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "" + Constants.DEFAULT_SEARCH_LIMIT) int limit) {
+        logger.debug("Reactive request for products after ID {} with limit {}", afterId, limit);
+        return productService.getProducts(afterId, limit);
+    }
+
+    /**
+     * Get a product by its ID.
+     *
+     * @param id the product ID
+     * @return the product, or 404 when it does not exist
+     */
+    @GetMapping("/{id}")
+    public Mono<ProductDTO> getProductById(@PathVariable Long id) {
+        logger.debug("Reactive request for product with ID: {}", id);
+        return productService.getProductById(id);
+    }
+
+    /**
+     * Search products by name, most similar first.
+     *
+     * @param name  the name to search for
+     * @param limit the maximum number of results
+     * @return matching products, or 404 when there are none
+     */
+    @GetMapping("/search")
+    public Flux<ProductDTO> searchProducts(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "" + Constants.DEFAULT_SEARCH_LIMIT) int limit) {
+        logger.debug("Reactive search for products with name: {}", name);
+        return productService.searchProductsByName(name, limit)
+                .switchIfEmpty(Flux.error(() -> new ProductNotFoundException("No products found with name: " + name)));
+    }
+
+    /**
+     * Get the top rated products of the given types.
+     *
+     * @param excludedProductIds product IDs to leave out
+     * @param itemTypes          the item types to suggest from
+     * @param limit              the maximum number of suggestions
+     * @return the suggestions, or 204 when there are none
+     */
+    @GetMapping("/suggested")
+    public Mono<ResponseEntity<List<ProductDTO>>> getSuggestedProducts(
+            @RequestParam(required = false, defaultValue = "") List<Long> excludedProductIds,
+            @RequestParam List<ItemType> itemTypes,
+            @RequestParam(defaultValue = "" + Constants.DEFAULT_SUGGESTION_LIMIT) int limit) {
+        if (excludedProductIds.size() > Constants.MAX_EXCLUDED_PRODUCT_IDS) {
+            throw new InvalidInputException("At most " + Constants.MAX_EXCLUDED_PRODUCT_IDS + " product IDs can be excluded");
+        }
+        return productService.findSuggestedProducts(excludedProductIds, itemTypes, limit)
+                .collectList()
+                .map(products -> products.isEmpty()
+                        ? ResponseEntity.noContent().<List<ProductDTO>>build()
+                        : ResponseEntity.ok(products));
+    }
+}
@@ -1,9 +1,14 @@
 package com.axontic.ecommerce.controller;
 
+import com.axontic.ecommerce.model.CartItemOperationDTO;
+import com.axontic.ecommerce.model.CartSummaryDTO;
 import com.axontic.ecommerce.model.ShoppingCartDTO;
 import com.axontic.ecommerce.exception.ResourceNotFoundException;
 import com.axontic.ecommerce.response.StatusResponseDTO;
+import com.axontic.ecommerce.service.CartItemService;
 import com.axontic.ecommerce.service.ShoppingCartService;
+import com.axontic.ecommerce.util.Constants;
+import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -18,23 +23,30 @@ public class ShoppingCartController {
     private static final Logger logger = LoggerFactory.getLogger(ShoppingCartController.class);
 
     private final ShoppingCartService shoppingCartService;
+    private final CartItemService cartItemService;
 
-    public ShoppingCartController(ShoppingCartService shoppingCartService) {
+    public ShoppingCartController(ShoppingCartService shoppingCartService, CartItemService cartItemService) {
         this.shoppingCartService = shoppingCartService;
+        this.cartItemService = cartItemService;
     }
 
     /**
-     * Get all shopping carts for a customer.
+     * Get a page of the shopping carts for a customer, oldest first.
      *
      * @param customerId The ID of the customer.
+     * @param page       The zero-based page number.
+     * @param size       The number of carts per page.
      * @return List of shopping cart DTOs.
      */
     @GetMapping("/{customerId}/carts")
-    public ResponseEntity<List<ShoppingCartDTO>> getCustomerCarts(@PathVariable Long customerId) {
-        logger.info("Request to fetch all shopping carts for customer ID: {}", customerId);
+    public ResponseEntity<List<ShoppingCartDTO>> getCustomerCarts(
+            @PathVariable Long customerId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + Constants.DEFAULT_CART_PAGE_SIZE) int size) {
+        logger.debug("Request to fetch shopping carts for customer ID: {} (page {}, size {})", customerId, page, size);
         try {
-            List<ShoppingCartDTO> cartDTOs = shoppingCartService.getCustomerCarts(customerId);
-            logger.info("Successfully fetched {} shopping carts for customer ID: {}", cartDTOs.size(), customerId);
+            List<ShoppingCartDTO> cartDTOs = shoppingCartService.getCustomerCarts(customerId, page, size);
+            logger.debug("Successfully fetched {} shopping carts for customer ID: {}", cartDTOs.size(), customerId);
             return ResponseEntity.ok(cartDTOs);
         } catch (ResourceNotFoundException ex) {
             logger.error("Error fetching shopping carts for customer ID {}: {}", customerId, ex.getMessage());
@@ -45,6 +57,27 @@ public class ShoppingCartController {
         }
     }
 
+    /**
+     * Get the item count and total of a shopping cart.
+     *
+     * @param cartId The ID of the shopping cart.
+     * @return The cart summary DTO, with the total in cents.
+     */
+    @GetMapping("/{cartId}/summary")
+    public ResponseEntity<CartSummaryDTO> getCartSummary(@PathVariable Long cartId) {
+        logger.debug("Request to fetch summary of shopping cart ID: {}", cartId);
+        try {
+            CartSummaryDTO summary = shoppingCartService.getCartSummary(cartId);
+            logger.debug("Successfully fetched summary of shopping cart ID: {}", cartId);
+            return ResponseEntity.ok(summary);
+        } catch (ResourceNotFoundException ex) {
+            logger.error("Error fetching summary of shopping cart ID {}: {}", cartId, ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error fetching summary of shopping cart ID {}: {}", cartId, ex.getMessage());
+            throw ex;
+        }
+    }
 
     /**
      * Add a product to a shopping cart or update its quantity.
@@ -61,12 +94,12 @@ public class ShoppingCartController {
             @RequestParam Long productId,
             @RequestParam int quantity) {
 
-        logger.info("Request to add product ID {} with quantity {} for customer ID: {} to cart ID: {}",
+        logger.debug("Request to add product ID {} with quantity {} for customer ID: {} to cart ID: {}",
                 productId, quantity, customerId, cartId);
 
         try {
             StatusResponseDTO updatedCartDTO = shoppingCartService.addProductToCart(customerId, cartId, productId, quantity);
-            logger.info("Product ID {} added/updated successfully for customer ID: {}", productId, customerId);
+            logger.debug("Product ID {} added/updated successfully for customer ID: {}", productId, customerId);
             return ResponseEntity.ok(updatedCartDTO);
         } catch (ResourceNotFoundException ex) {
             logger.error("Error adding product: {}", ex.getMessage());
@@ -78,6 +111,31 @@ public class ShoppingCartController {
     }
 
 
+    /**
+     * Apply a batch of add/remove/set-quantity operations to a shopping cart in one transaction.
+     *
+     * @param cartId     The ID of the shopping cart.
+     * @param operations The operations, applied in list order per product.
+     * @return Status with the number of cart lines that changed.
+     */
+    @PostMapping("/{cartId}/items/batch")
+    public ResponseEntity<StatusResponseDTO> applyCartItemOperations(
+            @PathVariable Long cartId,
+            @RequestBody List<@Valid CartItemOperationDTO> operations) {
+        logger.debug("Request to apply {} operations to shopping cart ID: {}", operations.size(), cartId);
+        try {
+            StatusResponseDTO status = cartItemService.applyOperations(cartId, operations);
+            logger.debug("Applied batch to shopping cart ID {}: {} lines changed", cartId, status.getCount());
+            return ResponseEntity.ok(status);
+        } catch (ResourceNotFoundException ex) {
+            logger.error("Error applying batch to shopping cart ID {}: {}", cartId, ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error applying batch to shopping cart ID {}: {}", cartId, ex.getMessage());
+            throw ex;
+        }
+    }
+
     /**
      * Remove a product from a shopping cart.
      *
@@ -91,10 +149,10 @@ public class ShoppingCartController {
             @RequestParam Long customerId,
             @RequestParam Long productId,
             @RequestParam int quantity) {
-        logger.info("Request to remove product ID {} with quantity {} from shopping cart ID: {}", productId, quantity, customerId);
+        logger.debug("Request to remove product ID {} with quantity {} from shopping cart ID: {}", productId, quantity, customerId);
         try {
             shoppingCartService.removeProductFromCart(customerId, productId, quantity);
-            logger.info("Product ID {} removed successfully from shopping cart ID: {}", productId, customerId);
+            logger.debug("Product ID {} removed successfully from shopping cart ID: {}", productId, customerId);
             return ResponseEntity.ok("Product removed successfully.");
         } catch (ResourceNotFoundException ex) {
             logger.error("Error removing product from shopping cart ID {}: {}", customerId, ex.getMessage());
@@ -113,10 +171,10 @@ public class ShoppingCartController {
      */
     @DeleteMapping("/{cartId}")
     public ResponseEntity<String> deleteCart(@PathVariable Long cartId) {
-        logger.info("Request to delete shopping cart ID: {}", cartId);
+        logger.debug("Request to delete shopping cart ID: {}", cartId);
         try {
             shoppingCartService.deleteCart(cartId);
-            logger.info("Shopping cart ID {} deleted successfully.", cartId);
+            logger.debug("Shopping cart ID {} deleted successfully.", cartId);
             return ResponseEntity.ok("Shopping cart deleted successfully.");
         } catch (ResourceNotFoundException ex) {
             logger.error("Error deleting shopping cart ID {}: {}", cartId, ex.getMessage());
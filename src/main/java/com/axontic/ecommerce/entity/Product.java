@@ -3,14 +3,28 @@ package com.axontic.ecommerce.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.LocalDateTime;
+
+/**
+ * Read-mostly, so held in the {@value #CACHE_REGION} second-level cache region. Writes through the
+ * persistence context update the region and invalidate cached product queries on commit.
+ */
 @Data
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Product.CACHE_REGION)
 public class Product {
 
+    public static final String CACHE_REGION = "product";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_id_seq")
+    @SequenceGenerator(name = "product_id_seq", sequenceName = "product_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long itemNumber;
 
@@ -27,6 +41,13 @@ public class Product {
     @Column(nullable = true)
     private Double rating;
 
+    /**
+     * Set on every insert and update; backs the ETag and Last-Modified validators.
+     */
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
     public Long getItemNumber() {
         return itemNumber;
     }
@@ -67,5 +88,13 @@ public class Product {
         this.rating = rating;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
 
 }
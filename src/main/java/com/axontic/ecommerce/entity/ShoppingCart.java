@@ -17,7 +17,7 @@ public class ShoppingCart {
     @Column(name="id")
     private Long shoppingCartId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", nullable = false)
     @JsonIgnore
     private Customer customer;
@@ -25,6 +25,13 @@ public class ShoppingCart {
     @OneToMany(mappedBy = "shoppingCart", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CartItem> cartItems = new ArrayList<>();
 
+    // Maintained in SQL by the statements that change the cart's items, never written by Hibernate
+    @Column(name = "item_count", insertable = false, updatable = false)
+    private int itemCount;
+
+    @Column(name = "total_cents", insertable = false, updatable = false)
+    private long totalCents;
+
     public Long getShoppingCartId() {
         return shoppingCartId;
     }
@@ -48,4 +55,20 @@ public class ShoppingCart {
     public void setCartItems(List<CartItem> cartItems) {
         this.cartItems = cartItems;
     }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public void setTotalCents(long totalCents) {
+        this.totalCents = totalCents;
+    }
 }
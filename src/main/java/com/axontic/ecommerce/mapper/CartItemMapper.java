@@ -0,0 +1,39 @@
+package com.axontic.ecommerce.mapper;
+
+import com.axontic.ecommerce.entity.CartItem;
+import com.axontic.ecommerce.model.CartItemDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps {@link CartItem} entities to {@link CartItemDTO}s, including the referenced product.
+ */
+@Component
+public class CartItemMapper {
+
+    private final ProductMapper productMapper;
+
+    public CartItemMapper(ProductMapper productMapper) {
+        this.productMapper = productMapper;
+    }
+
+    public CartItemDTO toDTO(CartItem cartItem) {
+        if (cartItem == null) {
+            return null;
+        }
+        return new CartItemDTO(cartItem.getCartItemId(), productMapper.toDTO(cartItem.getProduct()), cartItem.getQuantity());
+    }
+
+    public List<CartItemDTO> toDTOList(List<CartItem> cartItems) {
+        if (cartItems == null) {
+            return null;
+        }
+        List<CartItemDTO> cartItemDTOs = new ArrayList<>(cartItems.size());
+        for (CartItem cartItem : cartItems) {
+            cartItemDTOs.add(toDTO(cartItem));
+        }
+        return cartItemDTOs;
+    }
+}
@@ -0,0 +1,66 @@
+package com.axontic.ecommerce.mapper;
+
+import com.axontic.ecommerce.entity.Customer;
+import com.axontic.ecommerce.model.CustomerDTO;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps between {@link Customer} entities and {@link CustomerDTO}s.
+ * Shopping carts are only mapped by {@link #toDTO(Customer)}; the other methods never touch them.
+ */
+@Component
+public class CustomerMapper {
+
+    private final ShoppingCartMapper shoppingCartMapper;
+
+    public CustomerMapper(ShoppingCartMapper shoppingCartMapper) {
+        this.shoppingCartMapper = shoppingCartMapper;
+    }
+
+    /**
+     * Maps the customer together with all of its shopping carts and their contents.
+     */
+    public CustomerDTO toDTO(Customer customer) {
+        CustomerDTO customerDTO = toDTOWithoutCarts(customer);
+        if (customerDTO != null) {
+            customerDTO.setShoppingCarts(shoppingCartMapper.toDTOList(customer.getShoppingCarts()));
+        }
+        return customerDTO;
+    }
+
+    /**
+     * Maps only the customer's own columns, leaving the lazy shopping cart collection untouched.
+     */
+    public CustomerDTO toDTOWithoutCarts(Customer customer) {
+        if (customer == null) {
+            return null;
+        }
+        CustomerDTO customerDTO = new CustomerDTO();
+        customerDTO.setCustomerId(customer.getCustomerId());
+        customerDTO.setFirstName(customer.getFirstName());
+        customerDTO.setLastName(customer.getLastName());
+        customerDTO.setEmail(customer.getEmail());
+        customerDTO.setAddress(customer.getAddress());
+        return customerDTO;
+    }
+
+    /**
+     * Creates a new, unsaved entity. Carts in the payload are ignored; they are created through the cart API.
+     */
+    public Customer toEntity(CustomerDTO customerDTO) {
+        Customer customer = new Customer();
+        updateEntity(customerDTO, customer);
+        return customer;
+    }
+
+    /**
+     * Copies the editable fields of the DTO onto an existing entity in place.
+     * The ID and the shopping carts are never overwritten.
+     */
+    public void updateEntity(CustomerDTO customerDTO, Customer customer) {
+        customer.setFirstName(customerDTO.getFirstName());
+        customer.setLastName(customerDTO.getLastName());
+        customer.setEmail(customerDTO.getEmail());
+        customer.setAddress(customerDTO.getAddress());
+    }
+}
@@ -0,0 +1,87 @@
+package com.axontic.ecommerce.mapper;
+
+import com.axontic.ecommerce.entity.Product;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.repository.projection.ProductView;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps between {@link Product} entities and {@link ProductDTO}s with plain field copies.
+ * {@code updatedAt} is read-only: it is mapped to DTOs but never copied back onto an entity.
+ */
+@Component
+public class ProductMapper {
+
+    public ProductDTO toDTO(Product product) {
+        if (product == null) {
+            return null;
+        }
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setItemNumber(product.getItemNumber());
+        productDTO.setName(product.getName());
+        productDTO.setPrice(product.getPrice());
+        productDTO.setItemType(product.getItemType());
+        productDTO.setRating(product.getRating());
+        productDTO.setUpdatedAt(toInstant(product.getUpdatedAt()));
+        return productDTO;
+    }
+
+    public ProductDTO toDTO(ProductView view) {
+        if (view == null) {
+            return null;
+        }
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setItemNumber(view.getItemNumber());
+        productDTO.setName(view.getName());
+        productDTO.setPrice(view.getPrice());
+        productDTO.setItemType(view.getItemType());
+        productDTO.setRating(view.getRating());
+        productDTO.setUpdatedAt(toInstant(view.getUpdatedAt()));
+        return productDTO;
+    }
+
+    public List<ProductDTO> toDTOList(List<Product> products) {
+        List<ProductDTO> productDTOs = new ArrayList<>(products.size());
+        for (Product product : products) {
+            productDTOs.add(toDTO(product));
+        }
+        return productDTOs;
+    }
+
+    /**
+     * Creates a new, unsaved entity. The ID is left to the database.
+     */
+    public Product toEntity(ProductDTO productDTO) {
+        Product product = new Product();
+        updateEntity(productDTO, product);
+        return product;
+    }
+
+    /**
+     * Copies the editable fields of the DTO onto an existing entity in place.
+     * The ID is never overwritten, so a request body without one cannot turn an update into an insert.
+     */
+    public void updateEntity(ProductDTO productDTO, Product product) {
+        product.setName(productDTO.getName());
+        product.setPrice(productDTO.getPrice());
+        product.setItemType(productDTO.getItemType());
+        product.setRating(productDTO.getRating());
+    }
+
+    /**
+     * Converts an {@code updated_at} value, stored in the JVM's (and JDBC session's) time zone,
+     * to an instant. Truncated to milliseconds so a freshly saved entity and the same row read
+     * back from the database map to identical DTOs and validators.
+     */
+    public static Instant toInstant(LocalDateTime timestamp) {
+        return timestamp == null ? null
+                : timestamp.atZone(ZoneId.systemDefault()).toInstant().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
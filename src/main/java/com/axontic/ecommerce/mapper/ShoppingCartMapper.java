@@ -0,0 +1,40 @@
+package com.axontic.ecommerce.mapper;
+
+import com.axontic.ecommerce.entity.ShoppingCart;
+import com.axontic.ecommerce.model.ShoppingCartDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps {@link ShoppingCart} entities to {@link ShoppingCartDTO}s with their items.
+ * The owning customer is never read, so mapping a cart does not load it.
+ */
+@Component
+public class ShoppingCartMapper {
+
+    private final CartItemMapper cartItemMapper;
+
+    public ShoppingCartMapper(CartItemMapper cartItemMapper) {
+        this.cartItemMapper = cartItemMapper;
+    }
+
+    public ShoppingCartDTO toDTO(ShoppingCart shoppingCart) {
+        if (shoppingCart == null) {
+            return null;
+        }
+        return new ShoppingCartDTO(shoppingCart.getShoppingCartId(), cartItemMapper.toDTOList(shoppingCart.getCartItems()));
+    }
+
+    public List<ShoppingCartDTO> toDTOList(List<ShoppingCart> shoppingCarts) {
+        if (shoppingCarts == null) {
+            return null;
+        }
+        List<ShoppingCartDTO> shoppingCartDTOs = new ArrayList<>(shoppingCarts.size());
+        for (ShoppingCart shoppingCart : shoppingCarts) {
+            shoppingCartDTOs.add(toDTO(shoppingCart));
+        }
+        return shoppingCartDTOs;
+    }
+}
@@ -0,0 +1,52 @@
+package com.axontic.ecommerce.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a chunked bulk import. Each chunk commits on its own, so rows in
+ * successful chunks are saved even when other chunks fail.
+ */
+@Data
+@NoArgsConstructor
+public class BulkImportResultDTO {
+    private long received;
+    private long imported;
+    private long failed;
+    private List<ChunkFailureDTO> failedChunks = new ArrayList<>();
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public List<ChunkFailureDTO> getFailedChunks() {
+        return failedChunks;
+    }
+
+    public void setFailedChunks(List<ChunkFailureDTO> failedChunks) {
+        this.failedChunks = failedChunks;
+    }
+}
@@ -0,0 +1,49 @@
+package com.axontic.ecommerce.model;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One operation in a cart batch. Operations on the same product apply in list order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartItemOperationDTO {
+
+    @NotNull(message = "Operation is required")
+    private CartItemOperationType operation;
+
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+
+    @Min(value = 0, message = "Quantity cannot be negative")
+    private int quantity;
+
+    public CartItemOperationType getOperation() {
+        return operation;
+    }
+
+    public void setOperation(CartItemOperationType operation) {
+        this.operation = operation;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,13 @@
+package com.axontic.ecommerce.model;
+
+/**
+ * The kinds of change a batch can make to a cart line.
+ */
+public enum CartItemOperationType {
+    /** Add {@code quantity} to the line, creating it if needed. */
+    ADD,
+    /** Take {@code quantity} off the line, deleting it when nothing is left. */
+    REMOVE,
+    /** Replace the line's quantity; zero deletes the line. */
+    SET
+}
@@ -0,0 +1,46 @@
+package com.axontic.ecommerce.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A cart's maintained totals, read from the cart row alone. {@code itemCount} is the number
+ * of units in the cart and {@code totalCents} its value in integer cents.
+ */
+@Data
+@NoArgsConstructor
+public class CartSummaryDTO {
+    private Long shoppingCartId;
+    private int itemCount;
+    private long totalCents;
+
+    public CartSummaryDTO(Long shoppingCartId, int itemCount, long totalCents) {
+        this.shoppingCartId = shoppingCartId;
+        this.itemCount = itemCount;
+        this.totalCents = totalCents;
+    }
+
+    public Long getShoppingCartId() {
+        return shoppingCartId;
+    }
+
+    public void setShoppingCartId(Long shoppingCartId) {
+        this.shoppingCartId = shoppingCartId;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public void setTotalCents(long totalCents) {
+        this.totalCents = totalCents;
+    }
+}
@@ -0,0 +1,50 @@
+package com.axontic.ecommerce.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A bulk import chunk that was rolled back. Rows are numbered from 1 in input order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkFailureDTO {
+    private int chunkIndex;
+    private long firstRow;
+    private long lastRow;
+    private String error;
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(int chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public long getFirstRow() {
+        return firstRow;
+    }
+
+    public void setFirstRow(long firstRow) {
+        this.firstRow = firstRow;
+    }
+
+    public long getLastRow() {
+        return lastRow;
+    }
+
+    public void setLastRow(long lastRow) {
+        this.lastRow = lastRow;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,80 @@
+package com.axontic.ecommerce.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A customer row in the admin customer list. Built directly by a JPQL constructor
+ * expression, so no {@code Customer} entity is hydrated. {@code shoppingCarts} is
+ * only filled in (and serialized) when carts are requested.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CustomerSummaryDTO {
+    private Long customerId;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String address;
+    private List<ShoppingCartDTO> shoppingCarts;
+
+    public CustomerSummaryDTO(Long customerId, String firstName, String lastName, String email, String address) {
+        this.customerId = customerId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.address = address;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public List<ShoppingCartDTO> getShoppingCarts() {
+        return shoppingCarts;
+    }
+
+    public void setShoppingCarts(List<ShoppingCartDTO> shoppingCarts) {
+        this.shoppingCarts = shoppingCarts;
+    }
+}
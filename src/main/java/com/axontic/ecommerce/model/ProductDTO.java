@@ -2,9 +2,12 @@ package com.axontic.ecommerce.model;
 
 import com.axontic.ecommerce.entity.ItemType;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 
+import java.time.Instant;
+
 @Data
 public class ProductDTO {
 
@@ -25,6 +28,9 @@ public class ProductDTO {
     @DecimalMax(value = "5.0", message = "Rating cannot exceed 5.0")
     private Double rating;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant updatedAt;
+
     public ProductDTO(Long id, String name, Double price, ItemType itemType, Double rating) {
     }
 
@@ -71,4 +77,12 @@ public class ProductDTO {
     public void setRating(Double rating) {
         this.rating = rating;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -0,0 +1,24 @@
+package com.axontic.ecommerce.model;
+
+import com.axontic.ecommerce.exception.InvalidInputException;
+
+import java.util.Locale;
+
+/**
+ * Sort orders supported by the keyset-paginated product listing.
+ * Every order uses the product ID as a tie-breaker so pages are stable.
+ */
+public enum ProductSort {
+    ID, PRICE, RATING;
+
+    public static ProductSort from(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        try {
+            return ProductSort.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidInputException("Unsupported sort: " + value + ". Use one of id, price, rating.");
+        }
+    }
+}
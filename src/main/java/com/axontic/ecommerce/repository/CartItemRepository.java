@@ -1,7 +1,14 @@
 package com.axontic.ecommerce.repository;
 
 import com.axontic.ecommerce.entity.CartItem;
+import com.axontic.ecommerce.repository.projection.CartItemLocation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -19,4 +26,138 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
      */
     //Optional<CartItem> findByShoppingCartIdAndProductId(Long shoppingCartId, Long productId);
     Optional<CartItem> findByShoppingCartShoppingCartIdAndProductItemNumber(Long shoppingCartId, Long productId);
+
+    /**
+     * Check whether a customer already holds a product in a cart other than the given one.
+     * Answered in one round trip from the (product_id, shopping_cart_id) and
+     * (customer_id) indexes, however many carts the customer has.
+     *
+     * @param customerId the ID of the customer
+     * @param productId the ID of the product
+     * @param cartId the cart to ignore, or null to consider every cart
+     * @return true if the product is in another of the customer's carts
+     */
+    @Query(value = """
+            SELECT EXISTS (
+                SELECT 1 FROM cart_item ci
+                JOIN shopping_cart sc ON sc.id = ci.shopping_cart_id
+                WHERE ci.product_id = :productId
+                  AND sc.customer_id = :customerId
+                  AND sc.id IS DISTINCT FROM CAST(:cartId AS BIGINT))
+            """, nativeQuery = true)
+    boolean existsInOtherCart(@Param("customerId") Long customerId,
+                              @Param("productId") Long productId,
+                              @Param("cartId") Long cartId);
+
+    /**
+     * Find the cart items holding a product across all of a customer's carts, oldest first.
+     * Add-to-cart validation keeps a product in at most one cart per customer.
+     *
+     * @param customerId the ID of the customer
+     * @param productId the ID of the product
+     * @return the matching cart item and cart IDs
+     */
+    @Query("""
+            SELECT ci.cartItemId AS cartItemId, sc.shoppingCartId AS shoppingCartId
+            FROM CartItem ci JOIN ci.shoppingCart sc
+            WHERE sc.customer.customerId = :customerId AND ci.product.itemNumber = :productId
+            ORDER BY ci.cartItemId
+            """)
+    List<CartItemLocation> findLocationsByCustomerAndProduct(@Param("customerId") Long customerId,
+                                                             @Param("productId") Long productId);
+
+    /**
+     * Reduce a cart item's quantity, but only if it stays above zero, and take the removed
+     * units off the cart's totals in the same statement. The product is key-share locked
+     * before the cart row, as in {@link #upsertQuantity}, so a concurrent reprice either
+     * finishes first or waits, and the units come off at the price the totals hold.
+     *
+     * @return 1 if the quantity was reduced, 0 if the item would have been emptied
+     */
+    @Modifying
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cart_item"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "shopping_cart")
+    })
+    @Query(value = """
+            WITH locked_product AS (
+                SELECT p.id, p.price FROM product p WHERE p.id = :productId FOR KEY SHARE),
+            cart AS (
+                SELECT sc.id FROM shopping_cart sc JOIN locked_product ON true
+                WHERE sc.id = :cartId FOR UPDATE OF sc),
+            line AS (
+                UPDATE cart_item ci SET quantity = ci.quantity - :quantity
+                FROM cart
+                WHERE ci.id = :cartItemId AND ci.shopping_cart_id = cart.id AND ci.product_id = :productId
+                  AND ci.quantity > :quantity
+                RETURNING ci.shopping_cart_id)
+            UPDATE shopping_cart sc
+            SET item_count = sc.item_count - :quantity,
+                total_cents = sc.total_cents - :quantity * CAST(ROUND(lp.price * 100) AS BIGINT)
+            FROM line, locked_product lp
+            WHERE sc.id = line.shopping_cart_id
+            """, nativeQuery = true)
+    int decrementQuantityIfGreater(@Param("cartId") Long cartId, @Param("cartItemId") Long cartItemId,
+                                   @Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Add a product to a cart, or add to its quantity if the cart already holds it, and add
+     * the units to the cart's totals. A single statement backed by the (shopping_cart_id,
+     * product_id) unique constraint: the cart row is updated (and locked) first, so
+     * concurrent writes to the same cart are serialized by the database. The price is read
+     * under a key-share lock, so an in-flight reprice or delete of the product is waited for
+     * rather than added at the price it is replacing.
+     *
+     * @return 1 if the item was written, 0 if the cart does not exist
+     */
+    @Modifying
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cart_item"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "shopping_cart")
+    })
+    @Query(value = """
+            WITH cart AS (
+                UPDATE shopping_cart
+                SET item_count = item_count + :quantity,
+                    total_cents = total_cents + :quantity *
+                        (SELECT CAST(ROUND(p.price * 100) AS BIGINT) FROM product p WHERE p.id = :productId FOR KEY SHARE)
+                WHERE id = :cartId
+                RETURNING id)
+            INSERT INTO cart_item (shopping_cart_id, product_id, quantity)
+            SELECT cart.id, :productId, :quantity FROM cart
+            ON CONFLICT (shopping_cart_id, product_id)
+            DO UPDATE SET quantity = cart_item.quantity + EXCLUDED.quantity
+            """, nativeQuery = true)
+    int upsertQuantity(@Param("cartId") Long cartId, @Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Delete a cart item and take its units off the cart's totals in the same statement.
+     * Locks the product, then the cart row, like {@link #decrementQuantityIfGreater}.
+     *
+     * @return 1 if the item was deleted
+     */
+    @Modifying
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cart_item"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "shopping_cart")
+    })
+    @Query(value = """
+            WITH locked_product AS (
+                SELECT p.id, p.price FROM product p WHERE p.id = :productId FOR KEY SHARE),
+            cart AS (
+                SELECT sc.id FROM shopping_cart sc JOIN locked_product ON true
+                WHERE sc.id = :cartId FOR UPDATE OF sc),
+            line AS (
+                DELETE FROM cart_item ci
+                USING cart
+                WHERE ci.id = :cartItemId AND ci.shopping_cart_id = cart.id AND ci.product_id = :productId
+                RETURNING ci.shopping_cart_id, ci.quantity)
+            UPDATE shopping_cart sc
+            SET item_count = sc.item_count - line.quantity,
+                total_cents = sc.total_cents - line.quantity * CAST(ROUND(lp.price * 100) AS BIGINT)
+            FROM line, locked_product lp
+            WHERE sc.id = line.shopping_cart_id
+            """, nativeQuery = true)
+    int deleteByCartItemId(@Param("cartId") Long cartId, @Param("cartItemId") Long cartItemId,
+                           @Param("productId") Long productId);
 }
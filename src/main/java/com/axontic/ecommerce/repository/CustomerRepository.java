@@ -1,12 +1,43 @@
 package com.axontic.ecommerce.repository;
 
 import com.axontic.ecommerce.entity.Customer;
+import com.axontic.ecommerce.model.CustomerSummaryDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByEmail(String email);
+
+    /**
+     * Streams every customer in ID order without touching their shopping carts.
+     * Must be consumed inside a read-only transaction and the stream closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM Customer c ORDER BY c.customerId")
+    Stream<Customer> streamAll();
+
+    /**
+     * Page through customers as summary DTOs, in ID order. The constructor expression selects
+     * only the customer columns, so no entity or shopping cart is loaded.
+     */
+    @Query(value = """
+            SELECT new com.axontic.ecommerce.model.CustomerSummaryDTO(
+                c.customerId, c.firstName, c.lastName, c.email, c.address)
+            FROM Customer c ORDER BY c.customerId
+            """,
+            countQuery = "SELECT COUNT(c) FROM Customer c")
+    Page<CustomerSummaryDTO> findSummaries(Pageable pageable);
 }
@@ -2,21 +2,146 @@ package com.axontic.ecommerce.repository;
 
 import com.axontic.ecommerce.entity.ItemType;
 import com.axontic.ecommerce.entity.Product;
+import com.axontic.ecommerce.repository.projection.ProductCatalogVersion;
+import com.axontic.ecommerce.repository.projection.ProductView;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
-    List<Product> findByNameContainingIgnoreCase(String name);
 
-   @Query("SELECT p FROM Product p WHERE p.id NOT IN :excludedProductIds " +
-            "AND p.itemType IN :itemTypes ORDER BY p.rating DESC")
+    /**
+     * Query cache region for product queries. Results are invalidated whenever the product table is written.
+     */
+    String QUERY_CACHE_REGION = "product-queries";
+
+    /**
+     * Case-insensitive substring match on the name, ranked by trigram similarity to the search term.
+     * The ILIKE predicate is served by the {@code product_name_trgm_idx} GIN index instead of a table scan.
+     * {@code :pattern} must already be escaped for LIKE wildcards.
+     */
+    String NAME_SEARCH_QUERY = "SELECT p.* FROM product p WHERE p.name ILIKE '%' || :pattern || '%' " +
+            "ORDER BY public.similarity(p.name, :name) DESC, p.id LIMIT :limit";
+
+    /**
+     * Load a product from the database, bypassing the second-level cache, and lock its row until
+     * the transaction ends. Writes that adjust cart totals for the product's price take this lock
+     * first, so they see its current price and concurrent reprices and deletes are serialized.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.itemNumber = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * The product's last modification time, read without loading the entity.
+     */
+    @Query("SELECT p.updatedAt FROM Product p WHERE p.itemNumber = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+
+    /**
+     * Count and latest modification time of the whole catalog; the maximum is served by
+     * {@code product_updated_at_idx}.
+     */
+    @Query("SELECT COUNT(p) AS productCount, MAX(p.updatedAt) AS lastUpdated FROM Product p")
+    ProductCatalogVersion findCatalogVersion();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION),
+            // Native SQL: name the table so writes to it invalidate the cached results
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "product")
+    })
+    @Query(value = NAME_SEARCH_QUERY, nativeQuery = true)
+    List<Product> searchByName(@Param("pattern") String pattern,
+                               @Param("name") String name,
+                               @Param("limit") int limit);
+
+    /**
+     * Streams every product in ID order. Rows are fetched from the cursor in batches of the
+     * fetch size; must be consumed inside a read-only transaction and the stream closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.itemNumber")
+    Stream<Product> streamAll();
+
+    /**
+     * Top rated products of the given types, unrated last. {@code excludedProductIds} must not be empty;
+     * use {@link #findTopRatedByItemTypes} when nothing is excluded.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
+    @Query("SELECT p FROM Product p WHERE p.id NOT IN :excludedProductIds " +
+            "AND p.itemType IN :itemTypes ORDER BY p.rating DESC NULLS LAST, p.itemNumber")
     List<Product> findSuggestedProducts(@Param("excludedProductIds") List<Long> excludedProductIds,
-                                        @Param("itemTypes") List<ItemType> itemTypes);
+                                        @Param("itemTypes") List<ItemType> itemTypes,
+                                        Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
+    @Query("SELECT p FROM Product p WHERE p.itemType IN :itemTypes " +
+            "ORDER BY p.rating DESC NULLS LAST, p.itemNumber")
+    List<Product> findTopRatedByItemTypes(@Param("itemTypes") List<ItemType> itemTypes, Pageable pageable);
+
+    /**
+     * Streams every product as a projection, for rebuilding in-memory indexes.
+     * Must be consumed inside a read-only transaction and the stream closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT p.id AS \"itemNumber\", p.name AS \"name\", p.price AS \"price\", " +
+            "p.item_type AS \"itemType\", p.rating AS \"rating\", p.updated_at AS \"updatedAt\" FROM product p", nativeQuery = true)
+    Stream<ProductView> streamAllViews();
+
+    /**
+     * Keyset page ordered by ID. Seeks past {@code afterId} instead of using OFFSET.
+     */
+    @Query(value = "SELECT p.id AS \"itemNumber\", p.name AS \"name\", p.price AS \"price\", " +
+            "p.item_type AS \"itemType\", p.rating AS \"rating\", p.updated_at AS \"updatedAt\" " +
+            "FROM product p WHERE p.id > :afterId ORDER BY p.id LIMIT :limit", nativeQuery = true)
+    List<ProductView> findPageOrderedById(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * Keyset page ordered by price ascending, then ID. Backed by {@code product_price_id_idx}.
+     */
+    @Query(value = "SELECT p.id AS \"itemNumber\", p.name AS \"name\", p.price AS \"price\", " +
+            "p.item_type AS \"itemType\", p.rating AS \"rating\", p.updated_at AS \"updatedAt\" " +
+            "FROM product p WHERE (p.price, p.id) > (CAST(:price AS numeric), :afterId) " +
+            "ORDER BY p.price, p.id LIMIT :limit", nativeQuery = true)
+    List<ProductView> findPageOrderedByPrice(@Param("price") BigDecimal price,
+                                             @Param("afterId") long afterId,
+                                             @Param("limit") int limit);
+
+    /**
+     * Keyset page ordered by rating descending (unrated last), then ID. The sort key is the
+     * negated rating so the seek matches {@code product_rating_id_idx}.
+     */
+    @Query(value = "SELECT p.id AS \"itemNumber\", p.name AS \"name\", p.price AS \"price\", " +
+            "p.item_type AS \"itemType\", p.rating AS \"rating\", p.updated_at AS \"updatedAt\" " +
+            "FROM product p WHERE (-COALESCE(p.rating, -1), p.id) > (CAST(:ratingKey AS numeric), :afterId) " +
+            "ORDER BY -COALESCE(p.rating, -1), p.id LIMIT :limit", nativeQuery = true)
+    List<ProductView> findPageOrderedByRating(@Param("ratingKey") BigDecimal ratingKey,
+                                              @Param("afterId") long afterId,
+                                              @Param("limit") int limit);
 
 }
 
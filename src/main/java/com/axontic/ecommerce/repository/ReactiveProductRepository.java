@@ -0,0 +1,116 @@
+package com.axontic.ecommerce.repository;
+
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.mapper.ProductMapper;
+import com.axontic.ecommerce.model.ProductDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking product reads over R2DBC. Rows are mapped straight to {@link ProductDTO}s;
+ * there is no persistence context on this path. Each query is timed under the same
+ * {@code spring.data.repository.invocations} metric and tags as the Spring Data repositories.
+ */
+@Repository
+public class ReactiveProductRepository {
+
+    private static final String COLUMNS = "p.id, p.name, p.price, p.item_type, p.rating, p.updated_at";
+
+    private static final String METRIC_NAME = "spring.data.repository.invocations";
+
+    private final DatabaseClient databaseClient;
+    private final MeterRegistry meterRegistry;
+
+    public ReactiveProductRepository(DatabaseClient databaseClient, MeterRegistry meterRegistry) {
+        this.databaseClient = databaseClient;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Mono<ProductDTO> findById(long id) {
+        return timed("findById", databaseClient.sql("SELECT " + COLUMNS + " FROM product p WHERE p.id = :id")
+                .bind("id", id)
+                .map(ReactiveProductRepository::toDTO)
+                .one()
+                .flux()).singleOrEmpty();
+    }
+
+    /**
+     * Keyset page ordered by ID, seeking past {@code afterId}.
+     */
+    public Flux<ProductDTO> findPageOrderedById(long afterId, int limit) {
+        return timed("findPageOrderedById", databaseClient.sql("SELECT " + COLUMNS + " FROM product p WHERE p.id > :afterId ORDER BY p.id LIMIT :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveProductRepository::toDTO)
+                .all());
+    }
+
+    /**
+     * Same query, and so the same trigram index, as {@link ProductRepository#searchByName}.
+     * {@code pattern} must already be escaped for LIKE wildcards.
+     */
+    public Flux<ProductDTO> searchByName(String pattern, String name, int limit) {
+        return timed("searchByName", databaseClient.sql(ProductRepository.NAME_SEARCH_QUERY)
+                .bind("pattern", pattern)
+                .bind("name", name)
+                .bind("limit", limit)
+                .map(ReactiveProductRepository::toDTO)
+                .all());
+    }
+
+    /**
+     * Top rated products of the given types, unrated last, skipping the excluded IDs.
+     */
+    public Flux<ProductDTO> findTopRated(Collection<ItemType> itemTypes, Collection<Long> excludedProductIds, int limit) {
+        String exclusion = excludedProductIds.isEmpty() ? "" : "AND p.id NOT IN (:excludedProductIds) ";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT " + COLUMNS + " FROM product p " +
+                        "WHERE p.item_type IN (:itemTypes) " + exclusion +
+                        "ORDER BY p.rating DESC NULLS LAST, p.id LIMIT :limit")
+                .bind("itemTypes", itemTypes.stream().map(ItemType::name).toList())
+                .bind("limit", limit);
+        if (!excludedProductIds.isEmpty()) {
+            spec = spec.bind("excludedProductIds", excludedProductIds);
+        }
+        return timed("findTopRated", spec.map(ReactiveProductRepository::toDTO).all());
+    }
+
+    /**
+     * Times the query from subscription until it completes, fails or is cancelled.
+     */
+    private <T> Flux<T> timed(String method, Flux<T> query) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            return query.doOnError(error::set).doFinally(signal -> sample.stop(Timer.builder(METRIC_NAME)
+                    .tag("repository", ReactiveProductRepository.class.getSimpleName())
+                    .tag("method", method)
+                    .tag("state", signal == SignalType.ON_COMPLETE ? "SUCCESS"
+                            : signal == SignalType.CANCEL ? "CANCELED" : "ERROR")
+                    .tag("exception", error.get() == null ? "None" : error.get().getClass().getSimpleName())
+                    .register(meterRegistry)));
+        });
+    }
+
+    private static ProductDTO toDTO(Readable row) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setItemNumber(row.get("id", Long.class));
+        productDTO.setName(row.get("name", String.class));
+        productDTO.setPrice(row.get("price", BigDecimal.class).doubleValue());
+        productDTO.setItemType(ItemType.valueOf(row.get("item_type", String.class)));
+        BigDecimal rating = row.get("rating", BigDecimal.class);
+        productDTO.setRating(rating == null ? null : rating.doubleValue());
+        productDTO.setUpdatedAt(ProductMapper.toInstant(row.get("updated_at", LocalDateTime.class)));
+        return productDTO;
+    }
+}
@@ -1,8 +1,14 @@
 package com.axontic.ecommerce.repository;
 
 import com.axontic.ecommerce.entity.ShoppingCart;
+import com.axontic.ecommerce.model.CartSummaryDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
@@ -11,6 +17,112 @@ import java.util.Optional;
 @Repository
 public interface ShoppingCartRepository extends JpaRepository<ShoppingCart, Long> {
     List<ShoppingCart> findByCustomerCustomerId(Long customerId);
+
+    /**
+     * Page through a customer's cart IDs, oldest cart first. Paging on IDs keeps the
+     * LIMIT/OFFSET in SQL; paging a collection fetch join would be applied in memory.
+     */
+    @Query("SELECT c.shoppingCartId FROM ShoppingCart c WHERE c.customer.customerId = :customerId ORDER BY c.shoppingCartId")
+    List<Long> findIdsByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    /**
+     * Load carts together with their items and the items' products in a single query.
+     */
+    @Query("""
+            SELECT DISTINCT c FROM ShoppingCart c
+            LEFT JOIN FETCH c.cartItems ci
+            LEFT JOIN FETCH ci.product
+            WHERE c.shoppingCartId IN :ids
+            ORDER BY c.shoppingCartId
+            """)
+    List<ShoppingCart> findAllWithItemsAndProducts(@Param("ids") List<Long> ids);
+
+    /**
+     * Load the carts of several customers at once, with items and products fetch-joined,
+     * so a page of customers needs a single query for all of their carts.
+     */
+    @Query("""
+            SELECT DISTINCT c FROM ShoppingCart c
+            LEFT JOIN FETCH c.cartItems ci
+            LEFT JOIN FETCH ci.product
+            WHERE c.customer.customerId IN :customerIds
+            ORDER BY c.shoppingCartId
+            """)
+    List<ShoppingCart> findAllWithItemsAndProductsByCustomerIds(@Param("customerIds") List<Long> customerIds);
     @Query("SELECT c FROM ShoppingCart c LEFT JOIN FETCH c.cartItems WHERE c.id = :id")
     Optional<ShoppingCart> findByIdWithProducts(@Param("id") Long id);
+
+    /**
+     * Delete a cart if it no longer holds any items.
+     *
+     * @return 1 if the cart was deleted, 0 if it still has items
+     */
+    @Modifying
+    @Query("DELETE FROM ShoppingCart c WHERE c.shoppingCartId = :id AND NOT EXISTS (SELECT 1 FROM CartItem ci WHERE ci.shoppingCart = c)")
+    int deleteIfEmpty(@Param("id") Long id);
+
+    /**
+     * Read a cart's maintained totals from its own row, without touching its items.
+     */
+    @Query("""
+            SELECT new com.axontic.ecommerce.model.CartSummaryDTO(c.shoppingCartId, c.itemCount, c.totalCents)
+            FROM ShoppingCart c WHERE c.shoppingCartId = :id
+            """)
+    Optional<CartSummaryDTO> findSummaryById(@Param("id") Long id);
+
+    /**
+     * Reprice a product in the totals of every cart holding it, before its new price is
+     * written. The new price is rounded to the cent as the price column will store it.
+     *
+     * @param productId the product being repriced
+     * @param newPrice the product's new price
+     * @return the number of carts updated
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "shopping_cart"))
+    @Query(value = """
+            UPDATE shopping_cart sc
+            SET total_cents = sc.total_cents + ci.quantity *
+                (CAST(ROUND(CAST(:newPrice AS NUMERIC(10, 2)) * 100) AS BIGINT) - CAST(ROUND(p.price * 100) AS BIGINT))
+            FROM cart_item ci JOIN product p ON p.id = ci.product_id
+            WHERE ci.product_id = :productId AND sc.id = ci.shopping_cart_id
+            """, nativeQuery = true)
+    int repriceProductInTotals(@Param("productId") Long productId, @Param("newPrice") Double newPrice);
+
+    /**
+     * Take a product off the totals of every cart holding it, before the product (and, by
+     * cascade, its cart items) is deleted.
+     *
+     * @return the number of carts updated
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "shopping_cart"))
+    @Query(value = """
+            UPDATE shopping_cart sc
+            SET item_count = sc.item_count - ci.quantity,
+                total_cents = sc.total_cents - ci.quantity * CAST(ROUND(p.price * 100) AS BIGINT)
+            FROM cart_item ci JOIN product p ON p.id = ci.product_id
+            WHERE ci.product_id = :productId AND sc.id = ci.shopping_cart_id
+            """, nativeQuery = true)
+    int removeProductFromTotals(@Param("productId") Long productId);
+
+    /**
+     * Recompute a cart's totals from its items. Used after JDBC batches that change several
+     * lines at once.
+     *
+     * @return 1 if the cart exists
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "shopping_cart"))
+    @Query(value = """
+            UPDATE shopping_cart sc
+            SET item_count = totals.item_count,
+                total_cents = totals.total_cents
+            FROM (SELECT COALESCE(SUM(ci.quantity), 0) AS item_count,
+                         COALESCE(SUM(ci.quantity * CAST(ROUND(p.price * 100) AS BIGINT)), 0) AS total_cents
+                  FROM cart_item ci JOIN product p ON p.id = ci.product_id
+                  WHERE ci.shopping_cart_id = :id) totals
+            WHERE sc.id = :id
+            """, nativeQuery = true)
+    int recomputeTotals(@Param("id") Long id);
 }
@@ -0,0 +1,12 @@
+package com.axontic.ecommerce.repository.projection;
+
+/**
+ * Identifies a cart item and the cart holding it, so removals can issue targeted
+ * statements without loading the cart or its items.
+ */
+public interface CartItemLocation {
+
+    Long getCartItemId();
+
+    Long getShoppingCartId();
+}
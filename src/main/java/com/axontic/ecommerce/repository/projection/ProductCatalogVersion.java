@@ -0,0 +1,17 @@
+package com.axontic.ecommerce.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Size and latest modification of the product catalog. Any insert or update moves the
+ * timestamp and any delete lowers the count, so together they version the full listing.
+ */
+public interface ProductCatalogVersion {
+
+    long getProductCount();
+
+    /**
+     * The latest {@code updated_at}, or null when the catalog is empty.
+     */
+    LocalDateTime getLastUpdated();
+}
@@ -0,0 +1,24 @@
+package com.axontic.ecommerce.repository.projection;
+
+import com.axontic.ecommerce.entity.ItemType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a product row, used by the keyset pagination queries
+ * so a page is read without hydrating managed {@code Product} entities.
+ */
+public interface ProductView {
+
+    Long getItemNumber();
+
+    String getName();
+
+    Double getPrice();
+
+    ItemType getItemType();
+
+    Double getRating();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -1,4 +1,22 @@
 package com.axontic.ecommerce.service;
 
+import com.axontic.ecommerce.model.CartItemOperationDTO;
+import com.axontic.ecommerce.response.StatusResponseDTO;
+
+import java.util.List;
+
+/**
+ * Interface defining multi-item operations on the lines of a shopping cart.
+ */
 public interface CartItemService {
+
+    /**
+     * Applies a list of add/remove/set operations to a cart in one transaction.
+     * Either every operation is applied or none is.
+     *
+     * @param cartId the ID of the shopping cart.
+     * @param operations the operations, applied in list order per product.
+     * @return a status whose count is the number of cart lines that changed.
+     */
+    StatusResponseDTO applyOperations(Long cartId, List<CartItemOperationDTO> operations);
 }
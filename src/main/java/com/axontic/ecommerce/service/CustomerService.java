@@ -1,11 +1,17 @@
 package com.axontic.ecommerce.service;
 
 import com.axontic.ecommerce.model.CustomerDTO;
+import com.axontic.ecommerce.model.CustomerSummaryDTO;
+import com.axontic.ecommerce.model.PageResponseDTO;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface CustomerService {
     List<CustomerDTO> getAllCustomers();
 
+    PageResponseDTO<CustomerSummaryDTO> getCustomerSummaries(int page, int size, boolean includeCarts);
+
     CustomerDTO getCustomerById(Long id);
 
     CustomerDTO saveCustomer(CustomerDTO customer);
@@ -14,4 +20,6 @@ public interface CustomerService {
 
     void deleteCustomer(Long id);
 
+    long exportCustomers(OutputStream outputStream) throws IOException;
+
 }
@@ -1,7 +1,14 @@
 package com.axontic.ecommerce.service;
 import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.model.BulkImportResultDTO;
 import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.model.ProductPageDTO;
+import com.axontic.ecommerce.repository.projection.ProductCatalogVersion;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.List;
 
 public interface ProductService {
@@ -13,6 +20,16 @@ public interface ProductService {
      */
     List<ProductDTO> getAllProducts();
 
+    /**
+     * Retrieve one page of products using keyset pagination.
+     *
+     * @param sort   the sort order: id, price or rating
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the maximum number of products to return
+     * @return a ProductPageDTO with the products and the cursor for the next page
+     */
+    ProductPageDTO getProductPage(String sort, String cursor, int limit);
+
     /**
      * Retrieve a product by its ID.
      *
@@ -21,6 +38,21 @@ public interface ProductService {
      */
     ProductDTO getProductById(Long id);
 
+    /**
+     * Retrieve when a product was last modified, without loading the product.
+     *
+     * @param id the ID of the product
+     * @return the last modification time
+     */
+    Instant getProductLastModified(Long id);
+
+    /**
+     * Retrieve the size and latest modification time of the whole catalog.
+     *
+     * @return the catalog version
+     */
+    ProductCatalogVersion getCatalogVersion();
+
     /**
      * Save a new product.
      *
@@ -29,6 +61,15 @@ public interface ProductService {
      */
     List<ProductDTO> saveProduct(List<ProductDTO> productDTOList);
 
+    /**
+     * Import products in independently committed chunks.
+     *
+     * @param inputStream a JSON array or newline-delimited JSON of products
+     * @param chunkSize   the number of rows committed per transaction
+     * @return the number of rows received and imported, and the chunks that failed
+     */
+    BulkImportResultDTO importProducts(InputStream inputStream, int chunkSize) throws IOException;
+
     /**
      * Delete a product by its ID.
      *
@@ -47,13 +88,30 @@ public interface ProductService {
     ProductDTO updateProduct(Long id, ProductDTO productDTO);
 
     /**
-     * Search for products by name.
+     * Search for products by name, best matches first.
      *
-     * @param name the name of the product(s) to search for
+     * @param name  the name of the product(s) to search for
+     * @param limit the maximum number of products to return
      * @return ResponseEntity containing a list of matching ProductDTOs
      */
-    List<ProductDTO> searchProductsByName(String name);
+    List<ProductDTO> searchProductsByName(String name, int limit);
 
-    List<ProductDTO> findSuggestedProducts(List<Long> excludedProductIds, List<ItemType> itemTypes);
+    /**
+     * Find the best rated products of the given item types.
+     *
+     * @param excludedProductIds IDs to leave out, e.g. products already in the cart; may be empty
+     * @param itemTypes          the item types to suggest from
+     * @param limit              the maximum number of products to return
+     * @return the suggested products, best rated first
+     */
+    List<ProductDTO> findSuggestedProducts(List<Long> excludedProductIds, List<ItemType> itemTypes, int limit);
+
+    /**
+     * Write every product as newline-delimited JSON without materializing the catalog.
+     *
+     * @param outputStream the stream to write to
+     * @return the number of products written
+     */
+    long exportProducts(OutputStream outputStream) throws IOException;
 
 }
@@ -0,0 +1,34 @@
+package com.axontic.ecommerce.service;
+
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.model.ProductDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of the catalog reads in {@link ProductService}.
+ */
+public interface ReactiveProductService {
+
+    /**
+     * Get a page of products ordered by ID, starting after {@code afterId}.
+     */
+    Flux<ProductDTO> getProducts(long afterId, int limit);
+
+    /**
+     * Get a product by its ID; errors with ProductNotFoundException when it does not exist.
+     */
+    Mono<ProductDTO> getProductById(Long id);
+
+    /**
+     * Search products by name, most similar first.
+     */
+    Flux<ProductDTO> searchProductsByName(String name, int limit);
+
+    /**
+     * Get the top rated products of the given types, skipping excluded IDs.
+     */
+    Flux<ProductDTO> findSuggestedProducts(List<Long> excludedProductIds, List<ItemType> itemTypes, int limit);
+}
@@ -1,5 +1,6 @@
 package com.axontic.ecommerce.service;
 
+import com.axontic.ecommerce.model.CartSummaryDTO;
 import com.axontic.ecommerce.model.ShoppingCartDTO;
 import com.axontic.ecommerce.response.StatusResponseDTO;
 
@@ -12,12 +13,22 @@ import java.util.List;
 public interface ShoppingCartService {
 
     /**
-     * Retrieves all shopping carts belonging to a customer.
+     * Retrieves a page of the shopping carts belonging to a customer, oldest first.
      *
      * @param customerId the ID of the customer.
+     * @param page the zero-based page number.
+     * @param size the number of carts per page.
      * @return a list of ShoppingCartDTOs.
      */
-    List<ShoppingCartDTO> getCustomerCarts(Long customerId);
+    List<ShoppingCartDTO> getCustomerCarts(Long customerId, int page, int size);
+
+    /**
+     * Retrieves the item count and total of a shopping cart without loading its items.
+     *
+     * @param cartId the ID of the shopping cart.
+     * @return the cart's CartSummaryDTO.
+     */
+    CartSummaryDTO getCartSummary(Long cartId);
 
     /**
      * Adds a product to a shopping cart or updates its quantity if it already exists.
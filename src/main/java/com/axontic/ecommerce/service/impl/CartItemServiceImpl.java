@@ -1,4 +1,206 @@
 package com.axontic.ecommerce.service.impl;
 
-public class CartItemServiceImpl {
+import com.axontic.ecommerce.exception.InvalidInputException;
+import com.axontic.ecommerce.exception.ResourceNotFoundException;
+import com.axontic.ecommerce.model.CartItemOperationDTO;
+import com.axontic.ecommerce.repository.ShoppingCartRepository;
+import com.axontic.ecommerce.response.StatusResponseDTO;
+import com.axontic.ecommerce.service.CartItemService;
+import com.axontic.ecommerce.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies batches of cart line operations with a fixed number of statements: the batch's
+ * products are key-share locked, one query validates the whole batch and locks the cart,
+ * then the net change per product is written as at most three JDBC batches (insert,
+ * update, delete), followed by one statement recomputing the cart's totals. Used with the default cart engine;
+ * {@link WriteBehindShoppingCartService} applies batches to its in-memory carts instead.
+ */
+@Service
+@ConditionalOnProperty(name = "ecommerce.cart.engine", havingValue = "jpa", matchIfMissing = true)
+public class CartItemServiceImpl implements CartItemService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartItemServiceImpl.class);
+
+    // Taken before the cart lock, in the order every cart write locks, so a reprice of one of
+    // the products either commits first or waits for the batch and its recomputed totals
+    private static final String LOCK_PRODUCTS =
+            "SELECT p.id FROM product p WHERE p.id IN (:productIds) ORDER BY p.id FOR KEY SHARE";
+
+    // One row per requested product that exists (or a single row with a null product when
+    // none do), with its current quantity in the cart and whether another cart of the same
+    // customer holds it. Locking the cart row serializes concurrent batches on the cart.
+    private static final String VALIDATION_QUERY = """
+            SELECT p.id AS product_id,
+                   ci.quantity AS current_quantity,
+                   EXISTS (SELECT 1 FROM cart_item other
+                           JOIN shopping_cart other_cart ON other_cart.id = other.shopping_cart_id
+                           WHERE other.product_id = p.id
+                             AND other_cart.customer_id = sc.customer_id
+                             AND other_cart.id <> sc.id) AS in_other_cart
+            FROM shopping_cart sc
+            LEFT JOIN product p ON p.id IN (:productIds)
+            LEFT JOIN cart_item ci ON ci.shopping_cart_id = sc.id AND ci.product_id = p.id
+            WHERE sc.id = :cartId
+            FOR UPDATE OF sc
+            """;
+
+    private static final String INSERT_ITEM =
+            "INSERT INTO cart_item (shopping_cart_id, product_id, quantity) VALUES (?, ?, ?)";
+    private static final String UPDATE_ITEM =
+            "UPDATE cart_item SET quantity = ? WHERE shopping_cart_id = ? AND product_id = ?";
+    private static final String DELETE_ITEM =
+            "DELETE FROM cart_item WHERE shopping_cart_id = ? AND product_id = ?";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ShoppingCartRepository shoppingCartRepository;
+
+    public CartItemServiceImpl(NamedParameterJdbcTemplate jdbcTemplate, ShoppingCartRepository shoppingCartRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shoppingCartRepository = shoppingCartRepository;
+    }
+
+    @Override
+    @Transactional
+    public StatusResponseDTO applyOperations(Long cartId, List<CartItemOperationDTO> operations) {
+        logger.debug("Applying {} operations to cart ID: {}", operations == null ? 0 : operations.size(), cartId);
+        validateOperations(operations);
+
+        Set<Long> productIds = new LinkedHashSet<>();
+        operations.forEach(operation -> productIds.add(operation.getProductId()));
+        Map<Long, CartLine> lines = loadCartLines(cartId, productIds);
+
+        for (CartItemOperationDTO operation : operations) {
+            CartLine line = lines.get(operation.getProductId());
+            switch (operation.getOperation()) {
+                case ADD -> line.quantity += operation.getQuantity();
+                case SET -> line.quantity = operation.getQuantity();
+                case REMOVE -> {
+                    if (line.quantity == 0) {
+                        throw new InvalidInputException("Product ID " + operation.getProductId() + " is not in cart " + cartId + ".");
+                    }
+                    line.quantity = Math.max(0, line.quantity - operation.getQuantity());
+                }
+            }
+        }
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (Map.Entry<Long, CartLine> entry : lines.entrySet()) {
+            Long productId = entry.getKey();
+            CartLine line = entry.getValue();
+            if (line.quantity == line.originalQuantity) {
+                continue;
+            }
+            if (line.quantity > 0 && line.inOtherCart) {
+                throw new InvalidInputException("Product ID " + productId + " is already added to a different cart for the customer.");
+            }
+            if (line.originalQuantity == 0) {
+                inserts.add(new Object[]{cartId, productId, line.quantity});
+            } else if (line.quantity == 0) {
+                deletes.add(new Object[]{cartId, productId});
+            } else {
+                updates.add(new Object[]{line.quantity, cartId, productId});
+            }
+        }
+
+        batchUpdate(INSERT_ITEM, inserts);
+        batchUpdate(UPDATE_ITEM, updates);
+        batchUpdate(DELETE_ITEM, deletes);
+        int changed = inserts.size() + updates.size() + deletes.size();
+        if (changed > 0) {
+            shoppingCartRepository.recomputeTotals(cartId);
+        }
+        //if cart contains no items, cart should not exist
+        if (!deletes.isEmpty() && shoppingCartRepository.deleteIfEmpty(cartId) == 1) {
+            logger.debug("Cart ID: {} is empty and was deleted", cartId);
+        }
+
+        logger.debug("Cart ID: {} batch applied: {} added, {} updated, {} removed", cartId, inserts.size(), updates.size(), deletes.size());
+        StatusResponseDTO statusResponseDTO = new StatusResponseDTO();
+        statusResponseDTO.setStatusCode(HttpStatus.OK.value());
+        statusResponseDTO.setStatusMessage(changed + " cart lines changed in cart " + cartId);
+        statusResponseDTO.setCount(changed);
+        return statusResponseDTO;
+    }
+
+    /**
+     * Checks the batch size and that every operation is complete, before anything is read.
+     */
+    static void validateOperations(List<CartItemOperationDTO> operations) {
+        if (operations == null || operations.isEmpty() || operations.size() > Constants.MAX_CART_BATCH_SIZE) {
+            throw new InvalidInputException("A batch must contain between 1 and " + Constants.MAX_CART_BATCH_SIZE + " operations.");
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            CartItemOperationDTO operation = operations.get(i);
+            if (operation == null || operation.getOperation() == null || operation.getProductId() == null) {
+                throw new InvalidInputException("Operation " + i + " must have an operation type and a product ID.");
+            }
+            int minimum = switch (operation.getOperation()) {
+                case ADD, REMOVE -> 1;
+                case SET -> 0;
+            };
+            if (operation.getQuantity() < minimum) {
+                throw new InvalidInputException("Operation " + i + " (" + operation.getOperation() + ") needs a quantity of at least " + minimum + ".");
+            }
+        }
+    }
+
+    private Map<Long, CartLine> loadCartLines(Long cartId, Set<Long> productIds) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("cartId", cartId);
+        params.put("productIds", productIds);
+        jdbcTemplate.queryForList(LOCK_PRODUCTS, params, Long.class);
+        Map<Long, CartLine> lines = new LinkedHashMap<>();
+        boolean[] cartFound = {false};
+        jdbcTemplate.query(VALIDATION_QUERY, params, rs -> {
+            cartFound[0] = true;
+            long productId = rs.getLong("product_id");
+            if (!rs.wasNull()) {
+                lines.put(productId, new CartLine(rs.getInt("current_quantity"), rs.getBoolean("in_other_cart")));
+            }
+        });
+        if (!cartFound[0]) {
+            throw new ResourceNotFoundException("Cart not found with ID: " + cartId);
+        }
+        List<Long> missing = productIds.stream().filter(id -> !lines.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Products not found with IDs: " + missing);
+        }
+        return lines;
+    }
+
+    private void batchUpdate(String sql, List<Object[]> batchArgs) {
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.getJdbcTemplate().batchUpdate(sql, batchArgs);
+        }
+    }
+
+    /** The quantity of one product in the cart, before and while the batch is folded. */
+    private static final class CartLine {
+        private final int originalQuantity;
+        private final boolean inOtherCart;
+        private int quantity;
+
+        private CartLine(int originalQuantity, boolean inOtherCart) {
+            this.originalQuantity = originalQuantity;
+            this.inOtherCart = inOtherCart;
+            this.quantity = originalQuantity;
+        }
+    }
 }
@@ -1,20 +1,39 @@
 package com.axontic.ecommerce.service.impl;
 
 import com.axontic.ecommerce.entity.Customer;
+import com.axontic.ecommerce.entity.ShoppingCart;
 import com.axontic.ecommerce.exception.InvalidInputException;
 import com.axontic.ecommerce.exception.ResourceNotFoundException;
+import com.axontic.ecommerce.mapper.CustomerMapper;
+import com.axontic.ecommerce.mapper.ShoppingCartMapper;
 
 import com.axontic.ecommerce.model.CustomerDTO;
+import com.axontic.ecommerce.model.CustomerSummaryDTO;
+import com.axontic.ecommerce.model.PageResponseDTO;
+import com.axontic.ecommerce.model.ShoppingCartDTO;
 import com.axontic.ecommerce.repository.CustomerRepository;
+import com.axontic.ecommerce.repository.ShoppingCartRepository;
 import com.axontic.ecommerce.service.CustomerService;
 import com.axontic.ecommerce.util.Constants;
+import com.axontic.ecommerce.util.MappingMetrics;
 
+import com.axontic.ecommerce.util.NdjsonWriter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 
 @Service
@@ -23,41 +42,94 @@ public class CustomerServiceImpl implements CustomerService {
     private static final Logger logger = LoggerFactory.getLogger(CustomerServiceImpl.class);
 
     private final CustomerRepository repository;
+    private final ShoppingCartRepository shoppingCartRepository;
+    private final CustomerMapper customerMapper;
+    private final ShoppingCartMapper shoppingCartMapper;
+    private final MappingMetrics mappingMetrics;
     private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
 
-    public CustomerServiceImpl(CustomerRepository repository,ObjectMapper objectMapper) {
+    public CustomerServiceImpl(CustomerRepository repository, ShoppingCartRepository shoppingCartRepository,
+                               CustomerMapper customerMapper, ShoppingCartMapper shoppingCartMapper,
+                               ObjectMapper objectMapper, EntityManager entityManager, MappingMetrics mappingMetrics) {
         this.repository = repository;
+        this.shoppingCartRepository = shoppingCartRepository;
+        this.customerMapper = customerMapper;
+        this.shoppingCartMapper = shoppingCartMapper;
+        this.mappingMetrics = mappingMetrics;
         this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<CustomerDTO> getAllCustomers() {
-        logger.info("Fetching all customers from the database.");
+        logger.debug("Fetching all customers from the database.");
         try {
             List<Customer> customers = repository.findAll();
-            logger.info("Successfully fetched {} customers.", customers.size());
+            logger.debug("Successfully fetched {} customers.", customers.size());
 
-            return customers.stream()
-                    .map(customer -> objectMapper.convertValue(customer, CustomerDTO.class))
-                    .toList();
+            return mappingMetrics.record("customer.toDTOList", () -> customers.stream()
+                    .map(customerMapper::toDTO)
+                    .toList());
         } catch (Exception ex) {
             logger.error("Error occurred while fetching customers: {}", ex.getMessage(), ex);
             throw new RuntimeException(Constants.UNABLE_TO_FETCH_CUSTOMERS, ex);
         }
     }
 
+    /**
+     * Returns a page of customer summaries from a projection query. With {@code includeCarts},
+     * the carts of every customer on the page are loaded by one extra query, so the page costs
+     * two queries (plus the count) whatever the customers' cart histories.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponseDTO<CustomerSummaryDTO> getCustomerSummaries(int page, int size, boolean includeCarts) {
+        logger.debug("Fetching customer summaries (page {}, size {}, includeCarts {})", page, size, includeCarts);
+        if (page < 0 || size < 1 || size > Constants.MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Page must be non-negative and size between 1 and " + Constants.MAX_PAGE_SIZE);
+        }
+        try {
+            Page<CustomerSummaryDTO> summaries = repository.findSummaries(PageRequest.of(page, size));
+            if (includeCarts && summaries.hasContent()) {
+                attachCarts(summaries.getContent());
+            }
+            return PageResponseDTO.of(summaries);
+        } catch (Exception ex) {
+            logger.error("Error occurred while fetching customer summaries: {}", ex.getMessage(), ex);
+            throw new RuntimeException(Constants.UNABLE_TO_FETCH_CUSTOMERS, ex);
+        }
+    }
+
+    private void attachCarts(List<CustomerSummaryDTO> summaries) {
+        Map<Long, CustomerSummaryDTO> byId = new HashMap<>(summaries.size() * 2);
+        for (CustomerSummaryDTO summary : summaries) {
+            summary.setShoppingCarts(new ArrayList<>());
+            byId.put(summary.getCustomerId(), summary);
+        }
+        List<ShoppingCart> carts = shoppingCartRepository.findAllWithItemsAndProductsByCustomerIds(List.copyOf(byId.keySet()));
+        mappingMetrics.record("shoppingCart.toDTOList", () -> {
+            for (ShoppingCart cart : carts) {
+                // Reading the id of the lazy customer proxy does not initialize it
+                ShoppingCartDTO cartDTO = shoppingCartMapper.toDTO(cart);
+                byId.get(cart.getCustomer().getCustomerId()).getShoppingCarts().add(cartDTO);
+            }
+            return carts.size();
+        });
+    }
+
     @Override
     @Transactional(readOnly = true)
     public CustomerDTO getCustomerById(Long id) {
-        logger.info("Fetching customer with ID: {} from the database.", id);
+        logger.debug("Fetching customer with ID: {} from the database.", id);
         try {
             Customer customer = repository.findById(id).orElseThrow(() -> {
                 logger.warn("Customer with ID {} not found.", id);
                 return new ResourceNotFoundException(Constants.CUSTOMER_NOT_FOUND + id);
             });
-            CustomerDTO customerDTO = objectMapper.convertValue(customer, CustomerDTO.class);
-            logger.info("Successfully fetched customer with ID: {}", id);
+            CustomerDTO customerDTO = mappingMetrics.record("customer.toDTO", () -> customerMapper.toDTO(customer));
+            logger.debug("Successfully fetched customer with ID: {}", id);
             return customerDTO;
         } catch (ResourceNotFoundException ex) {
             logger.error("Error: {}", ex.getMessage());
@@ -72,12 +144,12 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     @Transactional
     public CustomerDTO saveCustomer(CustomerDTO customerDTO) {
-        logger.info("Saving customer to the database: {}", customerDTO);
+        logger.debug("Saving customer to the database.");
         try {
-            Customer customer = objectMapper.convertValue(customerDTO, Customer.class);
+            Customer customer = customerMapper.toEntity(customerDTO);
             Customer savedCustomer = repository.save(customer);
-            logger.info("Successfully saved customer with ID: {}", savedCustomer.getCustomerId());
-            return objectMapper.convertValue(savedCustomer, CustomerDTO.class);
+            logger.debug("Successfully saved customer with ID: {}", savedCustomer.getCustomerId());
+            return mappingMetrics.record("customer.toDTO", () -> customerMapper.toDTO(savedCustomer));
         } catch (Exception ex) {
             logger.error("Error occurred while saving customer: {}", ex.getMessage(), ex);
             throw new InvalidInputException(Constants.UNABLE_TO_SAVE_CUSTOMER, ex);
@@ -88,7 +160,7 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     @Transactional
     public CustomerDTO updateCustomer(Long id, CustomerDTO updatedCustomerDTO) {
-        logger.info("Updating customer with ID: {}", id);
+        logger.debug("Updating customer with ID: {}", id);
         try {
             // Fetch the existing customer from the database
             Customer existingCustomer = repository.findById(id).orElseThrow(() -> {
@@ -97,13 +169,13 @@ public class CustomerServiceImpl implements CustomerService {
             });
 
             // Merge fields from updatedCustomerDTO into existingCustomer
-            objectMapper.updateValue(existingCustomer, updatedCustomerDTO);
+            customerMapper.updateEntity(updatedCustomerDTO, existingCustomer);
 
             // Save the updated customer
             Customer savedCustomer = repository.save(existingCustomer);
-            logger.info("Successfully updated customer with ID: {}", savedCustomer.getCustomerId());
+            logger.debug("Successfully updated customer with ID: {}", savedCustomer.getCustomerId());
 
-            return objectMapper.convertValue(savedCustomer, CustomerDTO.class);
+            return mappingMetrics.record("customer.toDTO", () -> customerMapper.toDTO(savedCustomer));
         } catch (ResourceNotFoundException ex) {
             logger.error("Error: {}", ex.getMessage());
             throw ex;
@@ -117,14 +189,14 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     @Transactional
     public void deleteCustomer(Long id) {
-        logger.info("Deleting customer with ID: {}", id);
+        logger.debug("Deleting customer with ID: {}", id);
         try {
             Customer existingCustomer = repository.findById(id).orElseThrow(() -> {
                 logger.warn("Customer with ID {} not found for deletion.", id);
                 return new ResourceNotFoundException(Constants.CUSTOMER_NOT_FOUND + id);
             });
             repository.deleteById(id);
-            logger.info("Successfully deleted customer with ID: {}", id);
+            logger.debug("Successfully deleted customer with ID: {}", id);
 
         } catch (ResourceNotFoundException ex) {
             logger.error("Error: {}", ex.getMessage());
@@ -135,6 +207,24 @@ public class CustomerServiceImpl implements CustomerService {
         }
     }
 
-
-
-}
\ No newline at end of file
+    /**
+     * Streams all customers to the output as NDJSON. Shopping carts are left out so the
+     * lazy cart graph is never walked, and each entity is detached once written.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportCustomers(OutputStream outputStream) throws IOException {
+        logger.debug("Exporting all customers as NDJSON");
+        try (Stream<Customer> customers = repository.streamAll();
+             NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream)) {
+            Iterator<Customer> iterator = customers.iterator();
+            while (iterator.hasNext()) {
+                Customer customer = iterator.next();
+                writer.write(customerMapper.toDTOWithoutCarts(customer));
+                entityManager.detach(customer);
+            }
+            logger.debug("Exported {} customers.", writer.getCount());
+            return writer.getCount();
+        }
+    }
+}
@@ -4,18 +4,55 @@ import com.axontic.ecommerce.entity.ItemType;
 import com.axontic.ecommerce.entity.Product;
 import com.axontic.ecommerce.exception.InvalidInputException;
 import com.axontic.ecommerce.exception.ProductNotFoundException;
+import com.axontic.ecommerce.mapper.ProductMapper;
+import com.axontic.ecommerce.model.BulkImportResultDTO;
+import com.axontic.ecommerce.model.ChunkFailureDTO;
 import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.model.ProductPageDTO;
+import com.axontic.ecommerce.model.ProductSort;
 import com.axontic.ecommerce.repository.ProductRepository;
+import com.axontic.ecommerce.repository.ShoppingCartRepository;
+import com.axontic.ecommerce.repository.projection.ProductCatalogVersion;
+import com.axontic.ecommerce.repository.projection.ProductView;
 import com.axontic.ecommerce.service.ProductService;
 import com.axontic.ecommerce.util.Constants;
+import com.axontic.ecommerce.util.KeysetCursor;
+import com.axontic.ecommerce.util.MappingMetrics;
+import com.axontic.ecommerce.util.NdjsonWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.transaction.Transactional;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the ProductService interface.
@@ -27,25 +64,58 @@ public class ProductServiceImpl implements ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductServiceImpl.class);
 
     private final ProductRepository repository;
+    private final ShoppingCartRepository shoppingCartRepository;
+    private final ProductMapper productMapper;
     private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final ProductSuggestionIndex suggestionIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Validator validator;
+    private final MappingMetrics mappingMetrics;
 
-    public ProductServiceImpl(ProductRepository repository, ObjectMapper objectMapper) {
+    /**
+     * Product DTOs by ID. Entries are shared between callers and must not be modified.
+     */
+    private final Cache<Long, ProductDTO> productCache;
+
+    public ProductServiceImpl(ProductRepository repository, ShoppingCartRepository shoppingCartRepository,
+                              ProductMapper productMapper,
+                              ObjectMapper objectMapper, EntityManager entityManager,
+                              ProductSuggestionIndex suggestionIndex, PlatformTransactionManager transactionManager,
+                              Validator validator, MeterRegistry meterRegistry, MappingMetrics mappingMetrics,
+                              @Value("${ecommerce.product-cache.maximum-size:10000}") long cacheMaximumSize,
+                              @Value("${ecommerce.product-cache.ttl:10m}") Duration cacheTtl) {
         this.repository = repository;
+        this.shoppingCartRepository = shoppingCartRepository;
+        this.productMapper = productMapper;
         this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.suggestionIndex = suggestionIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.validator = validator;
+        this.mappingMetrics = mappingMetrics;
+        this.productCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, productCache, "products");
     }
 
     /**
      * Retrieves all products from the database.
      */
     @Override
+    @Transactional(readOnly = true)
     public List<ProductDTO> getAllProducts() {
-        logger.info(Constants.FETCHING_ALL_PRODUCTS);
+        logger.debug(Constants.FETCHING_ALL_PRODUCTS);
         try {
             List<Product> products = repository.findAll();
-            logger.info("Successfully fetched {} products.", products.size());
-            return products.stream()
-                    .map(product -> objectMapper.convertValue(product, ProductDTO.class))
-                    .collect(Collectors.toList());
+            logger.debug("Successfully fetched {} products.", products.size());
+            return mappingMetrics.record("product.toDTOList", () -> productMapper.toDTOList(products));
         } catch (Exception e) {
             logger.error(Constants.ERROR_FETCHING_PRODUCTS, e.getMessage(), e);
             throw new RuntimeException("Error occurred while fetching all products.", e);
@@ -53,16 +123,66 @@ public class ProductServiceImpl implements ProductService {
     }
 
     /**
-     * Retrieves a product by its ID.
+     * Retrieves one keyset page of products. Fetches one extra row to know whether a next page exists.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPageDTO getProductPage(String sort, String cursor, int limit) {
+        ProductSort productSort = ProductSort.from(sort);
+        if (limit < 1 || limit > Constants.MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Limit must be between 1 and " + Constants.MAX_PAGE_SIZE);
+        }
+        KeysetCursor position = cursor == null || cursor.isBlank()
+                ? KeysetCursor.first(productSort)
+                : KeysetCursor.decode(cursor, productSort);
+        logger.debug("Fetching product page sorted by {} after ID {} with limit {}", productSort, position.getLastId(), limit);
+
+        List<ProductView> rows = switch (productSort) {
+            case ID -> repository.findPageOrderedById(position.getLastId(), limit + 1);
+            case PRICE -> repository.findPageOrderedByPrice(position.getSortKey(), position.getLastId(), limit + 1);
+            case RATING -> repository.findPageOrderedByRating(position.getSortKey(), position.getLastId(), limit + 1);
+        };
+
+        boolean hasNext = rows.size() > limit;
+        List<ProductView> page = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? cursorAfter(productSort, page.get(page.size() - 1)).encode() : null;
+        List<ProductDTO> items = mappingMetrics.record("productView.toDTOList",
+                () -> page.stream().map(productMapper::toDTO).toList());
+        return new ProductPageDTO(items, nextCursor);
+    }
+
+    private KeysetCursor cursorAfter(ProductSort sort, ProductView last) {
+        BigDecimal sortKey = switch (sort) {
+            case ID -> BigDecimal.ZERO;
+            case PRICE -> BigDecimal.valueOf(last.getPrice());
+            case RATING -> BigDecimal.valueOf(last.getRating() == null ? -1 : last.getRating()).negate();
+        };
+        return new KeysetCursor(sort, sortKey, last.getItemNumber());
+    }
+
+    /**
+     * Retrieves a product by its ID, from the product cache when present. Only a cache miss
+     * opens a transaction, on the primary. Missing products are not cached.
      */
     @Override
     public ProductDTO getProductById(Long id) {
-        logger.info("Fetching product with ID: {}", id);
+        logger.debug("Fetching product with ID: {}", id);
         try {
-            Product product = repository.findById(id)
-                    .orElseThrow(() -> new ProductNotFoundException(Constants.PRODUCT_NOT_FOUND + id));
-            logger.info("Product with ID {} fetched successfully.", id);
-            return objectMapper.convertValue(product, ProductDTO.class);
+            ProductDTO productDTO = productCache.getIfPresent(id);
+            if (productDTO == null) {
+                // Loaded outside the cache: a loader runs under the cache's lock, which would pin a virtual
+                // thread's carrier for the whole query. Concurrent misses may each load; the first put wins.
+                // Loaded from the primary: a lagging replica must not refill the cache with what a write just replaced
+                ProductDTO loaded = transactionTemplate.execute(status -> {
+                    Product product = repository.findById(id)
+                            .orElseThrow(() -> new ProductNotFoundException(Constants.PRODUCT_NOT_FOUND + id));
+                    return mappingMetrics.record("product.toDTO", () -> productMapper.toDTO(product));
+                });
+                ProductDTO raced = productCache.asMap().putIfAbsent(id, loaded);
+                productDTO = raced != null ? raced : loaded;
+            }
+            logger.debug("Product with ID {} fetched successfully.", id);
+            return productDTO;
         } catch (ProductNotFoundException e) {
             logger.error("Product with ID {} not found: {}", id, e.getMessage(), e);
             throw e;
@@ -72,34 +192,141 @@ public class ProductServiceImpl implements ProductService {
         }
     }
 
+    /**
+     * Answers from the product cache when the product is there, otherwise reads only the
+     * {@code updated_at} column.
+     */
+    @Override
+    public Instant getProductLastModified(Long id) {
+        ProductDTO cached = productCache.getIfPresent(id);
+        if (cached != null) {
+            return cached.getUpdatedAt();
+        }
+        // Read from the primary, like the cache, so a lagging replica cannot answer a stale 304
+        return transactionTemplate.execute(status -> repository.findUpdatedAtById(id))
+                .map(ProductMapper::toInstant)
+                .orElseThrow(() -> new ProductNotFoundException(Constants.PRODUCT_NOT_FOUND + id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductCatalogVersion getCatalogVersion() {
+        return repository.findCatalogVersion();
+    }
+
     /**
      * Saves a new product to the database.
      */
     @Override
     @Transactional
     public List<ProductDTO> saveProduct(List<ProductDTO> productDTOList) {
-        logger.info("Saving new product: {}", productDTOList);
+        logger.debug("Saving {} new product(s).", productDTOList.size());
         try {
-            List<Product> productList = productDTOList.stream().map(c ->objectMapper.convertValue(c, Product.class)).toList();
-            List<Product> savedProduct = repository.saveAll(productList);
-            logger.info("Product saved successfully with ID: {}");
-            return savedProduct.stream().map(convertedProduct -> objectMapper.convertValue(convertedProduct, ProductDTO.class)).toList();
+            List<Product> productList = productDTOList.stream().map(productMapper::toEntity).toList();
+            // Flushed so the DTOs carry the timestamps set at insert
+            List<Product> savedProduct = repository.saveAllAndFlush(productList);
+            logger.debug("Product saved successfully with ID: {}");
+            List<ProductDTO> savedProductDTOs = mappingMetrics.record("product.toDTOList", () -> productMapper.toDTOList(savedProduct));
+            afterCommit(() -> {
+                savedProductDTOs.forEach(dto -> productCache.put(dto.getItemNumber(), dto));
+                suggestionIndex.upsertAll(savedProductDTOs);
+            });
+            return savedProductDTOs;
         } catch (Exception e) {
             logger.error("Error while saving product: {}", e.getMessage(), e);
             throw new RuntimeException("Error occurred while saving the product.", e);
         }
     }
 
+    /**
+     * Imports products from a JSON array or NDJSON stream, committing every {@code chunkSize} rows.
+     * Rows are read incrementally, so the input is never held in memory as a whole. A chunk with an
+     * invalid row or a database error is rolled back and reported; the other chunks still commit.
+     * Inserts within a chunk are JDBC-batched thanks to the pooled product ID sequence.
+     */
+    @Override
+    public BulkImportResultDTO importProducts(InputStream inputStream, int chunkSize) throws IOException {
+        if (chunkSize < 1 || chunkSize > Constants.MAX_IMPORT_CHUNK_SIZE) {
+            throw new InvalidInputException("Chunk size must be between 1 and " + Constants.MAX_IMPORT_CHUNK_SIZE);
+        }
+        logger.debug("Importing products in chunks of {}", chunkSize);
+        BulkImportResultDTO result = new BulkImportResultDTO();
+        List<ProductDTO> chunk = new ArrayList<>(chunkSize);
+        int chunkIndex = 0;
+        try (MappingIterator<ProductDTO> rows = objectMapper.readerFor(ProductDTO.class).readValues(inputStream)) {
+            while (rows.hasNextValue()) {
+                chunk.add(mappingMetrics.recordIO("product.fromJson", rows::nextValue));
+                result.setReceived(result.getReceived() + 1);
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunkIndex++, result.getReceived() - chunk.size() + 1, chunk, result);
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn("Stopping product import at malformed row {}: {}", result.getReceived() + 1, e.getOriginalMessage());
+            result.getFailedChunks().add(new ChunkFailureDTO(chunkIndex, result.getReceived() - chunk.size() + 1,
+                    result.getReceived() + 1, "Malformed input, import stopped: " + e.getOriginalMessage()));
+            result.setFailed(result.getFailed() + chunk.size());
+            chunk.clear();
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunkIndex, result.getReceived() - chunk.size() + 1, chunk, result);
+        }
+        logger.debug("Product import finished: {} received, {} imported, {} failed.",
+                result.getReceived(), result.getImported(), result.getFailed());
+        return result;
+    }
+
+    private void importChunk(int chunkIndex, long firstRow, List<ProductDTO> chunk, BulkImportResultDTO result) {
+        long lastRow = firstRow + chunk.size() - 1;
+        for (int i = 0; i < chunk.size(); i++) {
+            Set<ConstraintViolation<ProductDTO>> violations = validator.validate(chunk.get(i));
+            if (!violations.isEmpty()) {
+                ConstraintViolation<ProductDTO> violation = violations.iterator().next();
+                recordChunkFailure(chunkIndex, firstRow, lastRow, result,
+                        "Row " + (firstRow + i) + ": " + violation.getPropertyPath() + " " + violation.getMessage());
+                return;
+            }
+        }
+        try {
+            List<ProductDTO> saved = transactionTemplate.execute(status -> {
+                List<Product> products = repository.saveAll(chunk.stream().map(productMapper::toEntity).toList());
+                entityManager.flush();
+                List<ProductDTO> savedDTOs = productMapper.toDTOList(products);
+                entityManager.clear();
+                afterCommit(() -> suggestionIndex.upsertAll(savedDTOs));
+                return savedDTOs;
+            });
+            result.setImported(result.getImported() + saved.size());
+        } catch (Exception e) {
+            logger.error("Product import chunk {} (rows {}-{}) failed: {}", chunkIndex, firstRow, lastRow, e.getMessage(), e);
+            recordChunkFailure(chunkIndex, firstRow, lastRow, result, e.getMessage());
+        }
+    }
+
+    private static void recordChunkFailure(int chunkIndex, long firstRow, long lastRow, BulkImportResultDTO result, String error) {
+        result.getFailedChunks().add(new ChunkFailureDTO(chunkIndex, firstRow, lastRow, error));
+        result.setFailed(result.getFailed() + (lastRow - firstRow + 1));
+    }
+
     /**
      * Deletes a product by its ID.
      */
     @Override
+    @Transactional
     public void deleteProduct(Long id) {
-        logger.info("Deleting product with ID: {}", id);
+        logger.debug("Deleting product with ID: {}", id);
         try {
-            if (repository.existsById(id)) {
-                repository.deleteById(id);
-                logger.info("Product with ID {} deleted successfully.", id);
+            Optional<Product> product = repository.findByIdForUpdate(id);
+            if (product.isPresent()) {
+                // The cart items go with the product by cascade; their units leave the cart totals first
+                shoppingCartRepository.removeProductFromTotals(id);
+                repository.delete(product.get());
+                afterCommit(() -> {
+                    productCache.invalidate(id);
+                    suggestionIndex.remove(id);
+                });
+                logger.debug("Product with ID {} deleted successfully.", id);
             } else {
                 logger.warn("Product with ID {} not found for deletion.", id);
                 throw new ProductNotFoundException(Constants.PRODUCT_NOT_FOUND + id);
@@ -117,17 +344,31 @@ public class ProductServiceImpl implements ProductService {
      * Updates an existing product by its ID.
      */
     @Override
+    @Transactional
     public ProductDTO updateProduct(Long id, ProductDTO productDTO) {
-        logger.info("Updating product with ID: {}", id);
+        logger.debug("Updating product with ID: {}", id);
         try {
-            Product existingProduct = repository.findById(id)
+            // Locked and read from the database, not the second-level cache, so the reprice below
+            // starts from the stored price and no other reprice or delete of the product interleaves
+            Product existingProduct = repository.findByIdForUpdate(id)
                     .orElseThrow(() -> new ProductNotFoundException(Constants.PRODUCT_NOT_FOUND + id));
 
-            objectMapper.updateValue(existingProduct, productDTO);
+            // Repriced against the stored price, before the entity changes and can be flushed
+            if (!Objects.equals(existingProduct.getPrice(), productDTO.getPrice())) {
+                int carts = shoppingCartRepository.repriceProductInTotals(id, productDTO.getPrice());
+                logger.debug("Repriced product with ID {} in {} cart(s).", id, carts);
+            }
+            productMapper.updateEntity(productDTO, existingProduct);
 
-            Product updatedProduct = repository.save(existingProduct);
-            logger.info("Product with ID {} updated successfully.", id);
-            return objectMapper.convertValue(updatedProduct, ProductDTO.class);
+            // Flushed so the DTO carries the new updated_at
+            Product updatedProduct = repository.saveAndFlush(existingProduct);
+            ProductDTO updatedProductDTO = productMapper.toDTO(updatedProduct);
+            afterCommit(() -> {
+                productCache.invalidate(id);
+                suggestionIndex.upsert(updatedProductDTO);
+            });
+            logger.debug("Product with ID {} updated successfully.", id);
+            return updatedProductDTO;
         } catch (ProductNotFoundException e) {
             logger.error("Product with ID {} not found for update: {}", id, e.getMessage(), e);
             throw e;
@@ -138,17 +379,19 @@ public class ProductServiceImpl implements ProductService {
     }
 
     /**
-     * Searches for products by their name.
+     * Searches for products by their name, ranked by similarity and bounded by the limit.
      */
     @Override
-    public List<ProductDTO> searchProductsByName(String name) {
-        logger.info("Searching for products with name containing: {}", name);
+    @Transactional(readOnly = true)
+    public List<ProductDTO> searchProductsByName(String name, int limit) {
+        logger.debug("Searching for products with name containing: {}", name);
+        if (limit < 1 || limit > Constants.MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Limit must be between 1 and " + Constants.MAX_PAGE_SIZE);
+        }
         try {
-            List<Product> products = repository.findByNameContainingIgnoreCase(name);
-            logger.info("Found {} product(s) matching the name '{}'.", products.size(), name);
-            return products.stream()
-                    .map(product -> objectMapper.convertValue(product, ProductDTO.class))
-                    .collect(Collectors.toList());
+            List<Product> products = repository.searchByName(escapeLikePattern(name), name, limit);
+            logger.debug("Found {} product(s) matching the name '{}'.", products.size(), name);
+            return mappingMetrics.record("product.toDTOList", () -> productMapper.toDTOList(products));
         } catch (Exception e) {
             logger.error("Error while searching for products with name '{}': {}", name, e.getMessage(), e);
             throw new RuntimeException("Error occurred while searching for products.", e);
@@ -156,19 +399,77 @@ public class ProductServiceImpl implements ProductService {
     }
 
     /**
-     * Suggests products based on criteria.
+     * Suggests the top rated products of the given types from the in-memory suggestion index.
+     * Falls back to the database, in a read-only transaction, until the index has been built.
      */
     @Override
-    public List<ProductDTO> findSuggestedProducts(List<Long> excludedProductIds, List<ItemType> itemTypes) {
-        logger.info("Fetching suggested products with exclusions: {} and item types: {}", excludedProductIds, itemTypes);
+    public List<ProductDTO> findSuggestedProducts(List<Long> excludedProductIds, List<ItemType> itemTypes, int limit) {
+        logger.debug("Fetching suggested products with exclusions: {} and item types: {}", excludedProductIds, itemTypes);
+        if (limit < 1 || limit > Constants.MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Limit must be between 1 and " + Constants.MAX_PAGE_SIZE);
+        }
         try {
-            List<Product> products = repository.findSuggestedProducts(excludedProductIds, itemTypes);
-            return products.stream()
-                    .map(product -> objectMapper.convertValue(product, ProductDTO.class))
-                    .collect(Collectors.toList());
+            if (suggestionIndex.isReady()) {
+                return suggestionIndex.topK(itemTypes, excludedProductIds, limit);
+            }
+            return readOnlyTransactionTemplate.execute(status -> {
+                List<Product> products = excludedProductIds.isEmpty()
+                        ? repository.findTopRatedByItemTypes(itemTypes, PageRequest.ofSize(limit))
+                        : repository.findSuggestedProducts(excludedProductIds, itemTypes, PageRequest.ofSize(limit));
+                return mappingMetrics.record("product.toDTOList", () -> productMapper.toDTOList(products));
+            });
         } catch (Exception e) {
             logger.error("Error while fetching suggested products: {}", e.getMessage(), e);
             throw new RuntimeException("Error occurred while fetching suggested products.", e);
         }
     }
+
+    /**
+     * Streams all products to the output as NDJSON. Each entity is detached once written
+     * so the persistence context, and the heap, stay flat regardless of catalog size.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream outputStream) throws IOException {
+        logger.debug("Exporting all products as NDJSON");
+        try (Stream<Product> products = repository.streamAll();
+             NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream)) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                ProductDTO productDTO = mappingMetrics.record("product.toDTO", () -> productMapper.toDTO(product));
+                mappingMetrics.recordIO("product.toJson", () -> {
+                    writer.write(productDTO);
+                    return null;
+                });
+                entityManager.detach(product);
+            }
+            logger.debug("Exported {} products.", writer.getCount());
+            return writer.getCount();
+        }
+    }
+
+    /**
+     * Escapes LIKE wildcards so user input is matched literally.
+     */
+    static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Runs the action once the current transaction has committed, so the cache never
+     * reflects a write that was rolled back. Runs immediately outside a transaction.
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
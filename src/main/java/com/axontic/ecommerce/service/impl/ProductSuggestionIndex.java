@@ -0,0 +1,276 @@
+package com.axontic.ecommerce.service.impl;
+
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.mapper.ProductMapper;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.repository.ProductRepository;
+import com.axontic.ecommerce.repository.projection.ProductView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index answering "top rated products of these item types" without a database round trip.
+ * <p>
+ * Keeps one array per {@link ItemType}, sorted by rating descending (unrated last) and then by ID.
+ * A top-K request merges the arrays of the requested types and skips excluded IDs through a sorted array,
+ * so it touches roughly K + excluded entries regardless of catalog size.
+ * <p>
+ * The arrays are immutable snapshots swapped on write: readers never lock, writers copy the one array
+ * they change. Product writes are applied incrementally by {@link ProductServiceImpl}; a periodic full
+ * rebuild picks up writes made by other instances.
+ */
+@Component
+public class ProductSuggestionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestionIndex.class);
+
+    static final Comparator<ProductDTO> SUGGESTION_ORDER = Comparator
+            .comparingDouble((ProductDTO product) -> product.getRating() == null ? -1 : product.getRating())
+            .reversed()
+            .thenComparing(ProductDTO::getItemNumber);
+
+    private static final ProductDTO[] EMPTY = new ProductDTO[0];
+
+    private final ProductRepository repository;
+    private final ProductMapper productMapper;
+
+    /** Null until the first build completes; callers fall back to the database until then. */
+    private volatile Map<ItemType, ProductDTO[]> byType;
+
+    /** Writes applied while a rebuild is loading, replayed onto the rebuilt snapshot. Null value = removal. */
+    private Map<Long, ProductDTO> writesDuringRebuild;
+
+    public ProductSuggestionIndex(ProductRepository repository, ProductMapper productMapper) {
+        this.repository = repository;
+        this.productMapper = productMapper;
+    }
+
+    public boolean isReady() {
+        return byType != null;
+    }
+
+    /**
+     * Reloads the whole index from the database. Read from the primary: only writes made during the
+     * rebuild are replayed onto it, so rows a lagging replica had not yet received would stay missing
+     * until the next rebuild.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${ecommerce.suggestions.refresh-interval:PT5M}",
+            fixedDelayString = "${ecommerce.suggestions.refresh-interval:PT5M}")
+    @Transactional
+    public void rebuild() {
+        synchronized (this) {
+            writesDuringRebuild = new LinkedHashMap<>();
+        }
+        List<ProductDTO> products;
+        try (Stream<ProductView> views = repository.streamAllViews()) {
+            products = views.map(productMapper::toDTO).toList();
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                writesDuringRebuild = null;
+            }
+            throw ex;
+        }
+        replaceAll(products);
+        logger.info("Suggestion index rebuilt with {} products.", products.size());
+    }
+
+    /**
+     * Replaces the whole index with the given products, then replays any writes made while they were loaded.
+     */
+    public synchronized void replaceAll(Collection<ProductDTO> products) {
+        Map<ItemType, List<ProductDTO>> grouped = new EnumMap<>(ItemType.class);
+        for (ProductDTO product : products) {
+            grouped.computeIfAbsent(product.getItemType(), type -> new ArrayList<>()).add(product);
+        }
+        Map<ItemType, ProductDTO[]> snapshot = new EnumMap<>(ItemType.class);
+        for (ItemType type : ItemType.values()) {
+            ProductDTO[] sorted = grouped.getOrDefault(type, List.of()).toArray(EMPTY);
+            Arrays.sort(sorted, SUGGESTION_ORDER);
+            snapshot.put(type, sorted);
+        }
+        if (writesDuringRebuild != null) {
+            List<ProductDTO> upserts = new ArrayList<>();
+            writesDuringRebuild.forEach((id, product) -> {
+                if (product == null) {
+                    apply(snapshot, id, null);
+                } else {
+                    upserts.add(product);
+                }
+            });
+            applyAll(snapshot, upserts);
+            writesDuringRebuild = null;
+        }
+        byType = snapshot;
+    }
+
+    /**
+     * Inserts or moves a product after it was created or changed.
+     */
+    public synchronized void upsert(ProductDTO product) {
+        write(product.getItemNumber(), product);
+    }
+
+    public synchronized void remove(Long productId) {
+        write(productId, null);
+    }
+
+    /**
+     * Inserts or moves many products at once, e.g. a bulk import chunk. Costs one merge per item type
+     * instead of one array copy per product.
+     */
+    public synchronized void upsertAll(Collection<ProductDTO> products) {
+        if (writesDuringRebuild != null) {
+            products.forEach(product -> writesDuringRebuild.put(product.getItemNumber(), product));
+        }
+        Map<ItemType, ProductDTO[]> current = byType;
+        if (current == null || products.isEmpty()) {
+            return;
+        }
+        Map<ItemType, ProductDTO[]> snapshot = new EnumMap<>(current);
+        applyAll(snapshot, products);
+        byType = snapshot;
+    }
+
+    /**
+     * Returns up to {@code limit} products of the given types, best rated first, skipping excluded IDs.
+     * The returned DTOs are shared with the index and must not be modified.
+     */
+    public List<ProductDTO> topK(Collection<ItemType> itemTypes, Collection<Long> excludedProductIds, int limit) {
+        Map<ItemType, ProductDTO[]> snapshot = byType;
+        ProductDTO[][] candidates = itemTypes.stream().distinct().map(snapshot::get).toArray(ProductDTO[][]::new);
+        int[] positions = new int[candidates.length];
+        IdSet excluded = IdSet.of(excludedProductIds);
+
+        List<ProductDTO> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit) {
+            int best = -1;
+            for (int i = 0; i < candidates.length; i++) {
+                ProductDTO[] list = candidates[i];
+                while (positions[i] < list.length && excluded.contains(list[positions[i]].getItemNumber())) {
+                    positions[i]++;
+                }
+                if (positions[i] < list.length && (best < 0
+                        || SUGGESTION_ORDER.compare(list[positions[i]], candidates[best][positions[best]]) < 0)) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            result.add(candidates[best][positions[best]++]);
+        }
+        return result;
+    }
+
+    private void write(Long productId, ProductDTO product) {
+        if (writesDuringRebuild != null) {
+            writesDuringRebuild.put(productId, product);
+        }
+        Map<ItemType, ProductDTO[]> current = byType;
+        if (current == null) {
+            return;
+        }
+        Map<ItemType, ProductDTO[]> snapshot = new EnumMap<>(current);
+        apply(snapshot, productId, product);
+        byType = snapshot;
+    }
+
+    private static void apply(Map<ItemType, ProductDTO[]> snapshot, Long productId, ProductDTO product) {
+        for (Map.Entry<ItemType, ProductDTO[]> entry : snapshot.entrySet()) {
+            ProductDTO[] list = entry.getValue();
+            for (int i = 0; i < list.length; i++) {
+                if (list[i].getItemNumber().equals(productId)) {
+                    ProductDTO[] shrunk = new ProductDTO[list.length - 1];
+                    System.arraycopy(list, 0, shrunk, 0, i);
+                    System.arraycopy(list, i + 1, shrunk, i, list.length - i - 1);
+                    entry.setValue(shrunk);
+                    break;
+                }
+            }
+        }
+        if (product != null) {
+            ProductDTO[] list = snapshot.get(product.getItemType());
+            int insertAt = -(Arrays.binarySearch(list, product, SUGGESTION_ORDER) + 1);
+            ProductDTO[] grown = new ProductDTO[list.length + 1];
+            System.arraycopy(list, 0, grown, 0, insertAt);
+            grown[insertAt] = product;
+            System.arraycopy(list, insertAt, grown, insertAt + 1, list.length - insertAt);
+            snapshot.put(product.getItemType(), grown);
+        }
+    }
+
+    private static void applyAll(Map<ItemType, ProductDTO[]> snapshot, Collection<ProductDTO> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        Map<ItemType, List<ProductDTO>> added = new EnumMap<>(ItemType.class);
+        for (ProductDTO product : products) {
+            ids.add(product.getItemNumber());
+            added.computeIfAbsent(product.getItemType(), type -> new ArrayList<>()).add(product);
+        }
+        for (Map.Entry<ItemType, ProductDTO[]> entry : snapshot.entrySet()) {
+            List<ProductDTO> additions = added.getOrDefault(entry.getKey(), List.of());
+            List<ProductDTO> merged = new ArrayList<>(entry.getValue().length + additions.size());
+            for (ProductDTO existing : entry.getValue()) {
+                if (!ids.contains(existing.getItemNumber())) {
+                    merged.add(existing);
+                }
+            }
+            if (additions.isEmpty() && merged.size() == entry.getValue().length) {
+                continue;
+            }
+            merged.addAll(additions);
+            ProductDTO[] sorted = merged.toArray(EMPTY);
+            // The kept entries are already in order, so TimSort only has to merge the additions in
+            Arrays.sort(sorted, SUGGESTION_ORDER);
+            entry.setValue(sorted);
+        }
+    }
+
+    /**
+     * Sorted array of excluded IDs, searched by bisection. Exclusion lists are cart-sized, so this
+     * stays a few words whatever values the caller sends.
+     */
+    private static final class IdSet {
+
+        private static final IdSet EMPTY_SET = new IdSet(new long[0]);
+
+        private final long[] ids;
+
+        private IdSet(long[] ids) {
+            this.ids = ids;
+        }
+
+        static IdSet of(Collection<Long> ids) {
+            if (ids == null || ids.isEmpty()) {
+                return EMPTY_SET;
+            }
+            long[] sorted = ids.stream().filter(Objects::nonNull).mapToLong(Long::longValue).sorted().toArray();
+            return new IdSet(sorted);
+        }
+
+        boolean contains(long id) {
+            return ids.length > 0 && Arrays.binarySearch(ids, id) >= 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.axontic.ecommerce.service.impl;
+
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.exception.InvalidInputException;
+import com.axontic.ecommerce.exception.ProductNotFoundException;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.repository.ReactiveProductRepository;
+import com.axontic.ecommerce.service.ReactiveProductService;
+import com.axontic.ecommerce.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Serves catalog reads without blocking a thread on the database. Suggestions come from the
+ * shared in-memory {@link ProductSuggestionIndex} once it is built, like the servlet path.
+ */
+@Service
+public class ReactiveProductServiceImpl implements ReactiveProductService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveProductServiceImpl.class);
+
+    private final ReactiveProductRepository repository;
+    private final ProductSuggestionIndex suggestionIndex;
+
+    public ReactiveProductServiceImpl(ReactiveProductRepository repository, ProductSuggestionIndex suggestionIndex) {
+        this.repository = repository;
+        this.suggestionIndex = suggestionIndex;
+    }
+
+    @Override
+    public Flux<ProductDTO> getProducts(long afterId, int limit) {
+        logger.debug("Fetching products after ID {} with limit {}", afterId, limit);
+        return validateLimit(limit).thenMany(repository.findPageOrderedById(afterId, limit));
+    }
+
+    @Override
+    public Mono<ProductDTO> getProductById(Long id) {
+        logger.debug(Constants.FETCHING_PRODUCT + "{}", id);
+        return repository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ProductNotFoundException(Constants.PRODUCT_NOT_FOUND + id)));
+    }
+
+    @Override
+    public Flux<ProductDTO> searchProductsByName(String name, int limit) {
+        logger.debug(Constants.SEARCHING_PRODUCTS + "{}", name);
+        return validateLimit(limit).thenMany(repository.searchByName(ProductServiceImpl.escapeLikePattern(name), name, limit));
+    }
+
+    @Override
+    public Flux<ProductDTO> findSuggestedProducts(List<Long> excludedProductIds, List<ItemType> itemTypes, int limit) {
+        logger.debug("Fetching suggested products with exclusions: {} and item types: {}", excludedProductIds, itemTypes);
+        return validateLimit(limit).thenMany(Flux.defer(() -> suggestionIndex.isReady()
+                ? Flux.fromIterable(suggestionIndex.topK(itemTypes, excludedProductIds, limit))
+                : repository.findTopRated(itemTypes, excludedProductIds, limit)));
+    }
+
+    private static Mono<Void> validateLimit(int limit) {
+        if (limit < 1 || limit > Constants.MAX_PAGE_SIZE) {
+            return Mono.error(new InvalidInputException("Limit must be between 1 and " + Constants.MAX_PAGE_SIZE));
+        }
+        return Mono.empty();
+    }
+}
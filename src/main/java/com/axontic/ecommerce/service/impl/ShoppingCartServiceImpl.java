@@ -2,100 +2,133 @@ package com.axontic.ecommerce.service.impl;
 
 
 import com.axontic.ecommerce.exception.InvalidInputException;
+import com.axontic.ecommerce.mapper.ShoppingCartMapper;
+import com.axontic.ecommerce.model.CartSummaryDTO;
 import com.axontic.ecommerce.model.ShoppingCartDTO;
-import com.axontic.ecommerce.entity.CartItem;
-import com.axontic.ecommerce.entity.Product;
 import com.axontic.ecommerce.entity.ShoppingCart;
 import com.axontic.ecommerce.exception.ResourceNotFoundException;
 import com.axontic.ecommerce.repository.CartItemRepository;
 import com.axontic.ecommerce.repository.CustomerRepository;
-import com.axontic.ecommerce.repository.ProductRepository;
 import com.axontic.ecommerce.repository.ShoppingCartRepository;
+import com.axontic.ecommerce.repository.projection.CartItemLocation;
 import com.axontic.ecommerce.response.StatusResponseDTO;
+import com.axontic.ecommerce.service.ProductService;
 import com.axontic.ecommerce.service.ShoppingCartService;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.transaction.Transactional;
+import com.axontic.ecommerce.util.Constants;
+import com.axontic.ecommerce.util.MappingMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * The default cart engine: every cart write runs in its own JPA transaction. Replaced by
+ * {@link WriteBehindShoppingCartService} with {@code ecommerce.cart.engine=write-behind}.
+ */
 @Service
+@ConditionalOnProperty(name = "ecommerce.cart.engine", havingValue = "jpa", matchIfMissing = true)
 public class ShoppingCartServiceImpl implements ShoppingCartService {
 
     private static final Logger logger = LoggerFactory.getLogger(ShoppingCartServiceImpl.class);
 
     private final ShoppingCartRepository shoppingCartRepository;
     private final CustomerRepository customerRepository;
-    private final ProductRepository productRepository;
     private final CartItemRepository cartItemRepository;
-    private final ObjectMapper objectMapper;
+    private final ProductService productService;
+    private final ShoppingCartMapper shoppingCartMapper;
+    private final MappingMetrics mappingMetrics;
+    private final MeterRegistry meterRegistry;
 
     public ShoppingCartServiceImpl(
             ShoppingCartRepository shoppingCartRepository,
             CustomerRepository customerRepository,
-            ProductRepository productRepository,
-            CartItemRepository cartItemRepository, ObjectMapper objectMapper) {
+            CartItemRepository cartItemRepository,
+            ProductService productService,
+            ShoppingCartMapper shoppingCartMapper,
+            MappingMetrics mappingMetrics,
+            MeterRegistry meterRegistry) {
         this.shoppingCartRepository = shoppingCartRepository;
         this.customerRepository = customerRepository;
-        this.productRepository = productRepository;
         this.cartItemRepository = cartItemRepository;
-        this.objectMapper = objectMapper;
+        this.productService = productService;
+        this.shoppingCartMapper = shoppingCartMapper;
+        this.mappingMetrics = mappingMetrics;
+        this.meterRegistry = meterRegistry;
     }
 
+    /**
+     * Loads one page of a customer's carts with their items and products in two queries:
+     * the page of cart IDs, then the carts with items and products fetch-joined.
+     */
     @Override
-    public List<ShoppingCartDTO> getCustomerCarts(Long customerId) {
-        logger.info("Fetching all shopping carts for customer with ID: {}", customerId);
+    @Transactional(readOnly = true)
+    public List<ShoppingCartDTO> getCustomerCarts(Long customerId, int page, int size) {
+        logger.debug("Fetching shopping carts for customer with ID: {} (page {}, size {})", customerId, page, size);
+        if (page < 0 || size < 1 || size > Constants.MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Page must be non-negative and size between 1 and " + Constants.MAX_PAGE_SIZE);
+        }
         try {
-            List<ShoppingCart> carts = shoppingCartRepository.findByCustomerCustomerId(customerId);
-            return carts.stream()
-                    .map(shoppingCarts -> objectMapper.convertValue(shoppingCarts , ShoppingCartDTO.class))
-                    .collect(Collectors.toList());
+            List<Long> cartIds = shoppingCartRepository.findIdsByCustomerId(customerId, PageRequest.of(page, size));
+            if (cartIds.isEmpty()) {
+                return List.of();
+            }
+            List<ShoppingCart> carts = shoppingCartRepository.findAllWithItemsAndProducts(cartIds);
+            return mappingMetrics.record("shoppingCart.toDTOList", () -> shoppingCartMapper.toDTOList(carts));
         } catch (Exception ex) {
             logger.error("Error while fetching shopping carts for customer ID {}: {}", customerId, ex.getMessage(), ex);
             throw new RuntimeException("Unable to fetch shopping carts.", ex);
         }
     }
 
+    /**
+     * Reads the cart's maintained item count and total from its row alone.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CartSummaryDTO getCartSummary(Long cartId) {
+        logger.debug("Fetching summary of shopping cart with ID: {}", cartId);
+        return shoppingCartRepository.findSummaryById(cartId)
+                .orElseThrow(() -> {
+                    logger.warn("Cart with ID: {} not found", cartId);
+                    return new ResourceNotFoundException("Cart not found with ID: " + cartId);
+                });
+    }
+
     @Override
     @Transactional
     public StatusResponseDTO addProductToCart(Long customerId, Long cartId, Long productId, int quantity) {
-        logger.info("Adding product with ID: {} to cart with ID: {} for customer with ID: {}", productId, cartId, customerId);
+        logger.debug("Adding product with ID: {} to cart with ID: {} for customer with ID: {}", productId, cartId, customerId);
         try {
-            final ShoppingCart cart;
-            final Product product;
+            final Long targetCartId;
             StatusResponseDTO statusResponseDTO = new StatusResponseDTO();
-            validateInput(customerId,cartId,productId,quantity);
+            timedValidateInput(customerId, cartId, productId, quantity);
+            // Existence check is served from the product cache
+            productService.getProductById(productId);
             if (cartId != null) {
-                cart = shoppingCartRepository.findByIdWithProducts(cartId)
-                        .orElseThrow(() -> new ResourceNotFoundException("Cart not found with ID: " + cartId));
-                logger.debug("Fetched cart with ID: {}. Current products: {}", cart.getShoppingCartId(), cart.getCartItems());
+                if (!shoppingCartRepository.existsById(cartId)) {
+                    throw new ResourceNotFoundException("Cart not found with ID: " + cartId);
+                }
+                targetCartId = cartId;
             } else {
-                cart = new ShoppingCart();
-                cart.setCustomer(customerRepository.findById(customerId)
-                        .orElseThrow(() -> new ResourceNotFoundException("Customer not found with ID: " + customerId)));
+                // The customer FK only needs a reference, not a SELECT
+                ShoppingCart cart = new ShoppingCart();
+                cart.setCustomer(customerRepository.getReferenceById(customerId));
                 shoppingCartRepository.save(cart);
-                logger.info("Created a new cart with ID: {} for customer ID: {}", cart.getShoppingCartId(), customerId);
+                targetCartId = cart.getShoppingCartId();
+                logger.debug("Created a new cart with ID: {} for customer ID: {}", targetCartId, customerId);
             }
 
-            product = productRepository.findById(productId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + productId));
-
-            cartItemRepository.findByShoppingCartShoppingCartIdAndProductItemNumber(cart.getShoppingCartId(), productId).ifPresentOrElse(cartItem -> {
-                cartItem.setQuantity(cartItem.getQuantity() + quantity);
-                cartItemRepository.save(cartItem);
-                logger.info("Updated quantity for product ID: {} in cart ID: {}", productId, cart.getShoppingCartId());
-            }, () -> {
-                CartItem newCartItem = new CartItem();
-                newCartItem.setShoppingCart(cart);
-                newCartItem.setProduct(product);
-                newCartItem.setQuantity(quantity);
-                cartItemRepository.save(newCartItem);
-                logger.info("Added new product ID: {} to cart ID: {}", productId, cart.getShoppingCartId());
-            });
+            // Insert the item or add to its quantity, and update the cart totals, in one statement,
+            // so concurrent adds never lose an update
+            cartItemRepository.upsertQuantity(targetCartId, productId, quantity);
+            logger.debug("Added {} of product ID: {} to cart ID: {}", quantity, productId, targetCartId);
 
             statusResponseDTO.setStatusCode(HttpStatus.CREATED.value());
             statusResponseDTO.setStatusMessage("Product ID " + productId + " successfully added for customer " + customerId);
@@ -106,8 +139,29 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
         }
     }
 
+    /**
+     * Times add-to-cart validation as {@code ecommerce.cart.validation}, tagged REJECTED when
+     * the input fails a business rule, so validation can be told apart from the writes.
+     */
+    private void timedValidateInput(Long customerId, Long cartId, Long productId, int quantity) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "ERROR";
+        try {
+            validateInput(customerId, cartId, productId, quantity);
+            outcome = "SUCCESS";
+        } catch (InvalidInputException ex) {
+            outcome = "REJECTED";
+            throw ex;
+        } finally {
+            sample.stop(Timer.builder("ecommerce.cart.validation")
+                    .description("Time spent validating add-to-cart requests")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
     private void validateInput(Long customerId, Long cartId, Long productId, int quantity) {
-        logger.info("Validating input for customerId: {}, cartId: {}, productId: {}, quantity: {}", customerId, cartId, productId, quantity);
+        logger.debug("Validating input for customerId: {}, cartId: {}, productId: {}, quantity: {}", customerId, cartId, productId, quantity);
 
         // Check if quantity is negative or zero
         if (quantity <= 0) {
@@ -116,25 +170,19 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
         }
 
         // Check if the product is already added to a different cart for the same customer
-        List<ShoppingCart> customerCarts = shoppingCartRepository.findByCustomerCustomerId(customerId);
-        boolean productInOtherCart = customerCarts.stream()
-                .filter(cart -> !cart.getShoppingCartId().equals(cartId)) // Exclude the current cart if provided
-                .flatMap(cart -> cart.getCartItems().stream()) // Flatten cart items into a single stream
-                .anyMatch(cartItem -> cartItem.getProduct().getItemNumber().equals(productId));
-
-        if (productInOtherCart) {
+        if (cartItemRepository.existsInOtherCart(customerId, productId, cartId)) {
             logger.error("Product with ID: {} is already added to a different cart for customer ID: {}", productId, customerId);
             throw new InvalidInputException("Product is already added to a different cart for the customer.");
         }
 
-        logger.info("Input validation successful.");
+        logger.debug("Input validation successful.");
     }
 
 
     @Override
     @Transactional
     public void removeProductFromCart(Long customerId, Long productId, int quantity) {
-        logger.info("Removing product with ID: {} from any cart for customer with ID: {}", productId, customerId);
+        logger.debug("Removing product with ID: {} from any cart for customer with ID: {}", productId, customerId);
         try {
             // Validate input
             if (quantity <= 0) {
@@ -142,41 +190,29 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
                 throw new IllegalArgumentException("Quantity must be greater than zero.");
             }
 
-            // Fetch all carts for the customer
-            List<ShoppingCart> customerCarts = shoppingCartRepository.findByCustomerCustomerId(customerId);
-            if (customerCarts.isEmpty()) {
-                logger.warn("No carts found for customer with ID: {}", customerId);
-                throw new ResourceNotFoundException("No shopping carts found for the customer.");
-            }
-
-            // Iterate through each cart to find the product
-            boolean productFound = false;
-            for (ShoppingCart cart : customerCarts) {
-                CartItem cartItem = cartItemRepository.findByShoppingCartShoppingCartIdAndProductItemNumber(cart.getShoppingCartId(), productId)
-                        .orElse(null);
-
-                if (cartItem != null) {
-                    productFound = true;
-                    if (cartItem.getQuantity() <= quantity) {
-                        // Remove the cart item if quantity is less than or equal to the requested quantity
-                        cartItemRepository.delete(cartItem);
-                        //if cart contains no items, cart should not exist
-                        shoppingCartRepository.delete(cart);
-                        logger.info("Product completely removed from cart ID: {}", cart.getShoppingCartId());
-                    } else {
-                        // Reduce the quantity and save the cart item
-                        cartItem.setQuantity(cartItem.getQuantity() - quantity);
-                        cartItemRepository.save(cartItem);
-                        logger.info("Reduced quantity of product ID: {} in cart ID: {}", productId, cart.getShoppingCartId());
-                    }
-                    break; // Exit loop after processing the product
-                }
+            // Locate the cart item across all of the customer's carts in one query
+            CartItemLocation location = cartItemRepository.findLocationsByCustomerAndProduct(customerId, productId)
+                    .stream()
+                    .findFirst()
+                    .orElseThrow(() -> {
+                        logger.warn("Product with ID: {} not found in any cart for customer ID: {}", productId, customerId);
+                        return new ResourceNotFoundException("Product not found in any cart for the customer.");
+                    });
+            Long cartId = location.getShoppingCartId();
+
+            // Reduce the quantity and the totals in place; nothing is updated when the item would be emptied
+            if (cartItemRepository.decrementQuantityIfGreater(cartId, location.getCartItemId(), productId, quantity) == 1) {
+                logger.debug("Reduced quantity of product ID: {} in cart ID: {}", productId, cartId);
+                return;
             }
 
-            if (!productFound) {
-                logger.warn("Product with ID: {} not found in any cart for customer ID: {}", productId, customerId);
-                throw new ResourceNotFoundException("Product not found in any cart for the customer.");
+            // Remove the cart item if quantity is less than or equal to the requested quantity
+            cartItemRepository.deleteByCartItemId(cartId, location.getCartItemId(), productId);
+            //if cart contains no items, cart should not exist
+            if (shoppingCartRepository.deleteIfEmpty(cartId) == 1) {
+                logger.debug("Cart ID: {} is empty and was deleted", cartId);
             }
+            logger.debug("Product completely removed from cart ID: {}", cartId);
         } catch (Exception ex) {
             logger.error("Error while removing product with ID: {} from any cart for customer ID: {}: {}", productId, customerId, ex.getMessage(), ex);
             throw new RuntimeException("Unable to remove product from cart.", ex);
@@ -187,13 +223,13 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
     @Override
     @Transactional
     public void deleteCart(Long cartId) {
-        logger.info("Deleting shopping cart with ID: {}", cartId);
+        logger.debug("Deleting shopping cart with ID: {}", cartId);
         try {
             ShoppingCart cart = shoppingCartRepository.findById(cartId)
                     .orElseThrow(() -> new ResourceNotFoundException("Cart not found with ID: " + cartId));
             cartItemRepository.deleteAll(cart.getCartItems());
             shoppingCartRepository.delete(cart);
-            logger.info("Cart deleted successfully.");
+            logger.debug("Cart deleted successfully.");
         } catch (Exception ex) {
             logger.error("Error while deleting cart ID {}: {}", cartId, ex.getMessage(), ex);
             throw new RuntimeException("Unable to delete cart.", ex);
@@ -0,0 +1,930 @@
+package com.axontic.ecommerce.service.impl;
+
+import com.axontic.ecommerce.config.CartWriteBehindProperties;
+import com.axontic.ecommerce.exception.InvalidInputException;
+import com.axontic.ecommerce.exception.ProductNotFoundException;
+import com.axontic.ecommerce.exception.ResourceNotFoundException;
+import com.axontic.ecommerce.model.CartItemDTO;
+import com.axontic.ecommerce.model.CartItemOperationDTO;
+import com.axontic.ecommerce.model.CartSummaryDTO;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.model.ShoppingCartDTO;
+import com.axontic.ecommerce.response.StatusResponseDTO;
+import com.axontic.ecommerce.service.CartItemService;
+import com.axontic.ecommerce.service.ProductService;
+import com.axontic.ecommerce.service.ShoppingCartService;
+import com.axontic.ecommerce.util.Constants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Cart engine that holds customers' carts in memory and writes them to the database behind the
+ * request. Selected with {@code ecommerce.cart.engine=write-behind}; {@link ShoppingCartServiceImpl}
+ * is the default.
+ * <p>
+ * A customer's carts are loaded in one query on first use and then kept in a map guarded by striped
+ * locks, so mutations are acknowledged without a database write and requests for different customers
+ * rarely contend. A single writer thread flushes changed carts every flush interval, or sooner once
+ * enough customers have unwritten changes: the difference from what was last written goes out as
+ * grouped JDBC batches in one transaction, followed by one statement recomputing the carts' totals.
+ * A line whose product has been deleted since it was added is skipped and dropped from memory.
+ * The cart batch endpoint is served from the same in-memory carts. Pending changes are flushed
+ * synchronously on shutdown. Cart and cart item IDs are taken in blocks
+ * from their sequences, so a new cart has its ID before it is written.
+ * <p>
+ * The in-memory carts are authoritative for the customers they hold, which assumes a single instance
+ * (or routing by customer). Reads served from the database, such as customer summaries with carts, see
+ * carts as of the last flush.
+ */
+@Service
+@ConditionalOnProperty(name = "ecommerce.cart.engine", havingValue = "write-behind")
+@EnableConfigurationProperties(CartWriteBehindProperties.class)
+public class WriteBehindShoppingCartService implements ShoppingCartService, CartItemService, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindShoppingCartService.class);
+
+    // One row per cart item, one per empty cart, or a single row of nulls for a customer without carts
+    private static final String LOAD_CUSTOMER_CARTS = """
+            SELECT sc.id AS cart_id, ci.id AS item_id, ci.product_id, ci.quantity
+            FROM customer c
+            LEFT JOIN shopping_cart sc ON sc.customer_id = c.id
+            LEFT JOIN cart_item ci ON ci.shopping_cart_id = sc.id
+            WHERE c.id = :customerId
+            ORDER BY sc.id, ci.id
+            """;
+
+    private static final String FIND_CART_OWNER = "SELECT customer_id FROM shopping_cart WHERE id = :cartId";
+
+    private static final String NEXT_IDS = "SELECT nextval(CAST(:sequence AS regclass)) FROM generate_series(1, :count)";
+
+    private static final String INSERT_CART =
+            "INSERT INTO shopping_cart (id, customer_id) VALUES (?, ?) ON CONFLICT (id) DO NOTHING";
+    // Writes nothing, rather than failing the flush, when the product has been deleted since the line
+    // was added; the key-share lock keeps it from being deleted before the foreign key is checked.
+    // An INSERT ... SELECT is never rewritten into a multi-row insert, so each update count is exact.
+    private static final String UPSERT_ITEM = """
+            INSERT INTO cart_item (id, shopping_cart_id, product_id, quantity)
+            SELECT ?, ?, p.id, ? FROM product p WHERE p.id = ? FOR KEY SHARE
+            ON CONFLICT (shopping_cart_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity
+            """;
+    // Taken before the deletes and the totals recompute lock the carts, as the upserts do, so a
+    // reprice of a removed line's product either commits first or waits for the recomputed totals
+    private static final String LOCK_PRODUCTS =
+            "SELECT p.id FROM product p WHERE p.id IN (:productIds) ORDER BY p.id FOR KEY SHARE";
+    private static final String DELETE_ITEM =
+            "DELETE FROM cart_item WHERE shopping_cart_id = ? AND product_id = ?";
+    private static final String DELETE_CART = "DELETE FROM shopping_cart WHERE id = ?";
+
+    private static final String RECOMPUTE_TOTALS = """
+            UPDATE shopping_cart sc
+            SET item_count = totals.item_count,
+                total_cents = totals.total_cents
+            FROM (SELECT c.id,
+                         COALESCE(SUM(ci.quantity), 0) AS item_count,
+                         COALESCE(SUM(ci.quantity * CAST(ROUND(p.price * 100) AS BIGINT)), 0) AS total_cents
+                  FROM shopping_cart c
+                  LEFT JOIN cart_item ci ON ci.shopping_cart_id = c.id
+                  LEFT JOIN product p ON p.id = ci.product_id
+                  WHERE c.id IN (:cartIds)
+                  GROUP BY c.id) totals
+            WHERE sc.id = totals.id
+            """;
+    private static final int TOTALS_CHUNK = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductService productService;
+    private final MeterRegistry meterRegistry;
+    private final Counter discarded;
+    private final Counter skippedLines;
+
+    private final ReentrantLock[] locks;
+    private final Map<Long, CustomerCarts> customers = new ConcurrentHashMap<>();
+    /** Owner of every cart held in memory, so cart-addressed requests find their customer. */
+    private final Map<Long, Long> cartOwners = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyCustomers = ConcurrentHashMap.newKeySet();
+
+    private final IdBlock cartIds;
+    private final IdBlock itemIds;
+
+    private final int flushThreshold;
+    private final long flushIntervalNanos;
+    private final long idleEvictionNanos;
+    /** Held for a whole flush, so writes of the same cart never overlap or reorder. */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public WriteBehindShoppingCartService(NamedParameterJdbcTemplate jdbcTemplate,
+                                          PlatformTransactionManager transactionManager,
+                                          ProductService productService,
+                                          CartWriteBehindProperties properties,
+                                          MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productService = productService;
+        this.meterRegistry = meterRegistry;
+        this.locks = new ReentrantLock[properties.getLockStripes()];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.cartIds = new IdBlock("shopping_cart_id_seq", properties.getIdBlockSize());
+        this.itemIds = new IdBlock("cart_item_id_seq", properties.getIdBlockSize());
+        this.flushThreshold = properties.getFlushThreshold();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.idleEvictionNanos = properties.getIdleEviction().toNanos();
+        Gauge.builder("ecommerce.cart.dirty", dirtyCustomers, Set::size)
+                .description("Customers with cart changes not yet written to the database")
+                .register(meterRegistry);
+        this.discarded = Counter.builder("ecommerce.cart.flush.discarded")
+                .description("Customers whose unwritten cart changes were rejected by the database and dropped")
+                .register(meterRegistry);
+        this.skippedLines = Counter.builder("ecommerce.cart.flush.skipped")
+                .description("Unwritten cart lines dropped because their product had been deleted")
+                .register(meterRegistry);
+        this.writer = Thread.ofPlatform().name("cart-writer").daemon().start(this::runWriter);
+    }
+
+    @Override
+    public List<ShoppingCartDTO> getCustomerCarts(Long customerId, int page, int size) {
+        logger.debug("Fetching shopping carts for customer with ID: {} (page {}, size {})", customerId, page, size);
+        if (page < 0 || size < 1 || size > Constants.MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Page must be non-negative and size between 1 and " + Constants.MAX_PAGE_SIZE);
+        }
+        try {
+            // Lines are copied under the lock; products come from the product cache outside it
+            Map<Long, List<Line>> cartPage = withCustomer(customerId, carts -> {
+                Map<Long, List<Line>> copy = new TreeMap<>();
+                carts.carts.values().stream()
+                        .skip((long) page * size)
+                        .limit(size)
+                        .forEach(cart -> copy.put(cart.cartId, List.copyOf(cart.lines.values())));
+                return copy;
+            });
+            List<ShoppingCartDTO> cartDTOs = new ArrayList<>(cartPage.size());
+            cartPage.forEach((cartId, lines) -> {
+                List<CartItemDTO> items = new ArrayList<>(lines.size());
+                for (Line line : lines) {
+                    ProductDTO product = findProduct(line.productId());
+                    if (product != null) {
+                        items.add(new CartItemDTO(line.itemId(), product, line.quantity()));
+                    }
+                }
+                cartDTOs.add(new ShoppingCartDTO(cartId, items));
+            });
+            return cartDTOs;
+        } catch (ResourceNotFoundException ex) {
+            return List.of();
+        } catch (Exception ex) {
+            logger.error("Error while fetching shopping carts for customer ID {}: {}", customerId, ex.getMessage(), ex);
+            throw new RuntimeException("Unable to fetch shopping carts.", ex);
+        }
+    }
+
+    /**
+     * Totals the cart's in-memory lines at the cached product prices.
+     */
+    @Override
+    public CartSummaryDTO getCartSummary(Long cartId) {
+        logger.debug("Fetching summary of shopping cart with ID: {}", cartId);
+        List<Line> lines = withCustomer(ownerOf(cartId), carts -> {
+            Cart cart = carts.carts.get(cartId);
+            if (cart == null) {
+                throw new ResourceNotFoundException("Cart not found with ID: " + cartId);
+            }
+            return List.copyOf(cart.lines.values());
+        });
+        int itemCount = 0;
+        long totalCents = 0;
+        for (Line line : lines) {
+            ProductDTO product = findProduct(line.productId());
+            if (product != null) {
+                itemCount += line.quantity();
+                totalCents += line.quantity() * Math.round(product.getPrice() * 100);
+            }
+        }
+        return new CartSummaryDTO(cartId, itemCount, totalCents);
+    }
+
+    @Override
+    public StatusResponseDTO addProductToCart(Long customerId, Long cartId, Long productId, int quantity) {
+        logger.debug("Adding product with ID: {} to cart with ID: {} for customer with ID: {}", productId, cartId, customerId);
+        try {
+            if (quantity <= 0) {
+                logger.error("Invalid quantity: {}. Quantity must be greater than zero.", quantity);
+                throw new InvalidInputException("Quantity must be greater than zero.");
+            }
+            // Existence check is served from the product cache
+            productService.getProductById(productId);
+            // Taken before locking so an ID block is never fetched under a customer's lock
+            long newItemId = itemIds.next();
+            long newCartId = cartId == null ? cartIds.next() : 0;
+
+            Long targetCartId = withCustomer(customerId, carts -> {
+                for (Cart other : carts.carts.values()) {
+                    if (!other.cartIdEquals(cartId) && other.lines.containsKey(productId)) {
+                        logger.error("Product with ID: {} is already added to a different cart for customer ID: {}", productId, customerId);
+                        throw new InvalidInputException("Product is already added to a different cart for the customer.");
+                    }
+                }
+                Cart cart;
+                if (cartId != null) {
+                    cart = carts.carts.get(cartId);
+                    if (cart == null) {
+                        throw new ResourceNotFoundException("Cart not found with ID: " + cartId);
+                    }
+                } else {
+                    cart = new Cart(newCartId);
+                    carts.carts.put(newCartId, cart);
+                    cartOwners.put(newCartId, customerId);
+                    logger.debug("Created a new cart with ID: {} for customer ID: {}", newCartId, customerId);
+                }
+                Line line = cart.lines.get(productId);
+                if (line == null) {
+                    // A line removed since the last flush keeps the ID of its row
+                    Line written = cart.written == null ? null : cart.written.get(productId);
+                    line = new Line(written != null ? written.itemId() : newItemId, productId, 0);
+                }
+                cart.lines.put(productId, new Line(line.itemId(), productId, line.quantity() + quantity));
+                markDirty(carts, cart);
+                return cart.cartId;
+            });
+            signalIfOverThreshold();
+            logger.debug("Added {} of product ID: {} to cart ID: {}", quantity, productId, targetCartId);
+
+            StatusResponseDTO statusResponseDTO = new StatusResponseDTO();
+            statusResponseDTO.setStatusCode(HttpStatus.CREATED.value());
+            statusResponseDTO.setStatusMessage("Product ID " + productId + " successfully added for customer " + customerId);
+            return statusResponseDTO;
+        } catch (Exception ex) {
+            logger.error("Error while adding product to cart: {}", ex.getMessage(), ex);
+            throw new InvalidInputException("Unable to add product to cart.", ex);
+        }
+    }
+
+    @Override
+    public void removeProductFromCart(Long customerId, Long productId, int quantity) {
+        logger.debug("Removing product with ID: {} from any cart for customer with ID: {}", productId, customerId);
+        try {
+            if (quantity <= 0) {
+                logger.error("Invalid quantity: {}. Quantity must be greater than zero.", quantity);
+                throw new IllegalArgumentException("Quantity must be greater than zero.");
+            }
+            withCustomer(customerId, carts -> {
+                Cart cart = carts.carts.values().stream()
+                        .filter(candidate -> candidate.lines.containsKey(productId))
+                        .min(Comparator.comparingLong(candidate -> candidate.lines.get(productId).itemId()))
+                        .orElseThrow(() -> {
+                            logger.warn("Product with ID: {} not found in any cart for customer ID: {}", productId, customerId);
+                            return new ResourceNotFoundException("Product not found in any cart for the customer.");
+                        });
+                Line line = cart.lines.get(productId);
+                if (line.quantity() > quantity) {
+                    cart.lines.put(productId, new Line(line.itemId(), productId, line.quantity() - quantity));
+                    markDirty(carts, cart);
+                    logger.debug("Reduced quantity of product ID: {} in cart ID: {}", productId, cart.cartId);
+                    return null;
+                }
+                cart.lines.remove(productId);
+                //if cart contains no items, cart should not exist
+                if (cart.lines.isEmpty()) {
+                    removeCart(carts, cart);
+                    logger.debug("Cart ID: {} is empty and was deleted", cart.cartId);
+                } else {
+                    markDirty(carts, cart);
+                }
+                logger.debug("Product completely removed from cart ID: {}", cart.cartId);
+                return null;
+            });
+            signalIfOverThreshold();
+        } catch (Exception ex) {
+            logger.error("Error while removing product with ID: {} from any cart for customer ID: {}: {}", productId, customerId, ex.getMessage(), ex);
+            throw new RuntimeException("Unable to remove product from cart.", ex);
+        }
+    }
+
+    @Override
+    public void deleteCart(Long cartId) {
+        logger.debug("Deleting shopping cart with ID: {}", cartId);
+        try {
+            withCustomer(ownerOf(cartId), carts -> {
+                Cart cart = carts.carts.get(cartId);
+                if (cart == null) {
+                    throw new ResourceNotFoundException("Cart not found with ID: " + cartId);
+                }
+                removeCart(carts, cart);
+                return null;
+            });
+            signalIfOverThreshold();
+            logger.debug("Cart deleted successfully.");
+        } catch (Exception ex) {
+            logger.error("Error while deleting cart ID {}: {}", cartId, ex.getMessage(), ex);
+            throw new RuntimeException("Unable to delete cart.", ex);
+        }
+    }
+
+    /**
+     * Folds the operations per product, checks the result and applies it to the in-memory cart
+     * under the customer's lock, so either every operation is applied or none is.
+     */
+    @Override
+    public StatusResponseDTO applyOperations(Long cartId, List<CartItemOperationDTO> operations) {
+        logger.debug("Applying {} operations to cart ID: {}", operations == null ? 0 : operations.size(), cartId);
+        CartItemServiceImpl.validateOperations(operations);
+
+        Set<Long> productIds = new LinkedHashSet<>();
+        operations.forEach(operation -> productIds.add(operation.getProductId()));
+        // Existence checks are served from the product cache
+        List<Long> missing = productIds.stream().filter(productId -> findProduct(productId) == null).toList();
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Products not found with IDs: " + missing);
+        }
+        // Taken before locking, one per product in case all are new lines
+        List<Long> newItemIds = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            newItemIds.add(itemIds.next());
+        }
+
+        int changed = withCustomer(ownerOf(cartId), carts -> {
+            Cart cart = carts.carts.get(cartId);
+            if (cart == null) {
+                throw new ResourceNotFoundException("Cart not found with ID: " + cartId);
+            }
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            for (Long productId : productIds) {
+                Line line = cart.lines.get(productId);
+                quantities.put(productId, line == null ? 0 : line.quantity());
+            }
+            for (CartItemOperationDTO operation : operations) {
+                Long productId = operation.getProductId();
+                int quantity = quantities.get(productId);
+                switch (operation.getOperation()) {
+                    case ADD -> quantity += operation.getQuantity();
+                    case SET -> quantity = operation.getQuantity();
+                    case REMOVE -> {
+                        if (quantity == 0) {
+                            throw new InvalidInputException("Product ID " + productId + " is not in cart " + cartId + ".");
+                        }
+                        quantity = Math.max(0, quantity - operation.getQuantity());
+                    }
+                }
+                quantities.put(productId, quantity);
+            }
+
+            Map<Long, Integer> changes = new LinkedHashMap<>();
+            quantities.forEach((productId, quantity) -> {
+                Line line = cart.lines.get(productId);
+                if (quantity == (line == null ? 0 : line.quantity())) {
+                    return;
+                }
+                if (quantity > 0 && carts.carts.values().stream()
+                        .anyMatch(other -> other != cart && other.lines.containsKey(productId))) {
+                    throw new InvalidInputException("Product ID " + productId + " is already added to a different cart for the customer.");
+                }
+                changes.put(productId, quantity);
+            });
+            if (changes.isEmpty()) {
+                return 0;
+            }
+
+            Iterator<Long> unusedItemIds = newItemIds.iterator();
+            changes.forEach((productId, quantity) -> {
+                if (quantity == 0) {
+                    cart.lines.remove(productId);
+                    return;
+                }
+                Line line = cart.lines.get(productId);
+                if (line == null) {
+                    // A line removed since the last flush keeps the ID of its row
+                    line = cart.written == null ? null : cart.written.get(productId);
+                }
+                long itemId = line != null ? line.itemId() : unusedItemIds.next();
+                cart.lines.put(productId, new Line(itemId, productId, quantity));
+            });
+            //if cart contains no items, cart should not exist
+            if (cart.lines.isEmpty()) {
+                removeCart(carts, cart);
+                logger.debug("Cart ID: {} is empty and was deleted", cartId);
+            } else {
+                markDirty(carts, cart);
+            }
+            return changes.size();
+        });
+        signalIfOverThreshold();
+
+        logger.debug("Cart ID: {} batch applied: {} lines changed", cartId, changed);
+        StatusResponseDTO statusResponseDTO = new StatusResponseDTO();
+        statusResponseDTO.setStatusCode(HttpStatus.OK.value());
+        statusResponseDTO.setStatusMessage(changed + " cart lines changed in cart " + cartId);
+        statusResponseDTO.setCount(changed);
+        return statusResponseDTO;
+    }
+
+    /**
+     * Writes every cart changed since the last flush. Called by the writer thread and on shutdown.
+     *
+     * @return the number of customers whose carts were written or attempted
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            List<CustomerWrite> writes = collectWrites();
+            if (writes.isEmpty()) {
+                return 0;
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "SUCCESS";
+            try {
+                Map<Long, List<Long>> skipped = write(writes);
+                writes.forEach(write -> markWritten(write, skipped));
+            } catch (DataIntegrityViolationException ex) {
+                // Lines of deleted products are skipped, so this is one customer's change conflicting
+                // with a write made outside the engine; the others must not wait on it
+                outcome = "PARTIAL";
+                logger.warn("Cart flush of {} customers rejected, writing them one by one: {}", writes.size(), ex.getMessage());
+                writes.forEach(this::writeAlone);
+            } catch (RuntimeException ex) {
+                outcome = "ERROR";
+                logger.error("Cart flush of {} customers failed, retrying on the next flush: {}", writes.size(), ex.getMessage(), ex);
+                writes.forEach(this::requeue);
+            } finally {
+                sample.stop(Timer.builder("ecommerce.cart.flush")
+                        .description("Time spent writing changed carts to the database")
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+            logger.debug("Flushed carts of {} customers", writes.size());
+            return writes.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        // Runs before the data source is closed, since this bean depends on it
+        flush();
+        if (!dirtyCustomers.isEmpty()) {
+            logger.error("Cart changes of {} customers could not be written on shutdown", dirtyCustomers.size());
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            LockSupport.parkNanos(flushIntervalNanos);
+            if (!running) {
+                // The final flush runs in destroy()
+                return;
+            }
+            try {
+                flush();
+                evictIdle();
+            } catch (RuntimeException ex) {
+                logger.warn("Cart writer failed: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private void signalIfOverThreshold() {
+        if (dirtyCustomers.size() >= flushThreshold) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Runs the action on the customer's carts under the customer's lock, loading them first if needed.
+     */
+    private <T> T withCustomer(Long customerId, Function<CustomerCarts, T> action) {
+        ReentrantLock lock = lockFor(customerId);
+        while (true) {
+            lock.lock();
+            try {
+                CustomerCarts carts = customers.get(customerId);
+                if (carts != null) {
+                    carts.lastAccessNanos = System.nanoTime();
+                    return action.apply(carts);
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Loaded outside the lock; a concurrent load of the same customer keeps the first one
+            CustomerCarts loaded = load(customerId);
+            lock.lock();
+            try {
+                if (customers.putIfAbsent(customerId, loaded) == null) {
+                    loaded.carts.keySet().forEach(cartId -> cartOwners.put(cartId, customerId));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ReentrantLock lockFor(Long customerId) {
+        return locks[Math.floorMod(customerId.hashCode(), locks.length)];
+    }
+
+    private CustomerCarts load(Long customerId) {
+        CustomerCarts loaded = new CustomerCarts(customerId);
+        boolean[] customerFound = {false};
+        jdbcTemplate.query(LOAD_CUSTOMER_CARTS, Map.of("customerId", customerId), rs -> {
+            customerFound[0] = true;
+            long cartId = rs.getLong("cart_id");
+            if (rs.wasNull()) {
+                return;
+            }
+            Cart cart = loaded.carts.computeIfAbsent(cartId, Cart::new);
+            long itemId = rs.getLong("item_id");
+            if (!rs.wasNull()) {
+                long productId = rs.getLong("product_id");
+                cart.lines.put(productId, new Line(itemId, productId, rs.getInt("quantity")));
+            }
+        });
+        if (!customerFound[0]) {
+            throw new ResourceNotFoundException("Customer not found with ID: " + customerId);
+        }
+        loaded.carts.values().forEach(cart -> cart.written = new HashMap<>(cart.lines));
+        logger.debug("Loaded {} carts of customer ID: {}", loaded.carts.size(), customerId);
+        return loaded;
+    }
+
+    private Long ownerOf(Long cartId) {
+        Long owner = cartOwners.get(cartId);
+        if (owner != null) {
+            return owner;
+        }
+        List<Long> owners = jdbcTemplate.queryForList(FIND_CART_OWNER, Map.of("cartId", cartId), Long.class);
+        if (owners.isEmpty()) {
+            throw new ResourceNotFoundException("Cart not found with ID: " + cartId);
+        }
+        return owners.get(0);
+    }
+
+    private ProductDTO findProduct(Long productId) {
+        try {
+            return productService.getProductById(productId);
+        } catch (ProductNotFoundException ex) {
+            // Deleted since it was added; its cart items went with it
+            return null;
+        }
+    }
+
+    private void markDirty(CustomerCarts carts, Cart cart) {
+        cart.version++;
+        dirtyCustomers.add(carts.customerId);
+    }
+
+    private void removeCart(CustomerCarts carts, Cart cart) {
+        carts.carts.remove(cart.cartId);
+        carts.deleted.add(cart);
+        cartOwners.remove(cart.cartId);
+        dirtyCustomers.add(carts.customerId);
+    }
+
+    private List<CustomerWrite> collectWrites() {
+        List<CustomerWrite> writes = new ArrayList<>();
+        for (Iterator<Long> it = dirtyCustomers.iterator(); it.hasNext(); ) {
+            Long customerId = it.next();
+            // Removed before the snapshot: a change made after it marks the customer dirty again
+            it.remove();
+            ReentrantLock lock = lockFor(customerId);
+            lock.lock();
+            try {
+                CustomerCarts carts = customers.get(customerId);
+                CustomerWrite write = carts == null ? null : carts.snapshot();
+                if (write != null) {
+                    writes.add(write);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return writes;
+    }
+
+    /**
+     * Writes the changes in one transaction.
+     *
+     * @return the product IDs of the lines not written because their product no longer exists, by cart ID
+     */
+    private Map<Long, List<Long>> write(List<CustomerWrite> writes) {
+        List<Object[]> cartInserts = new ArrayList<>();
+        List<Object[]> itemUpserts = new ArrayList<>();
+        List<Object[]> itemDeletes = new ArrayList<>();
+        List<Object[]> cartDeletes = new ArrayList<>();
+        List<Long> changedCartIds = new ArrayList<>();
+        Set<Long> removedProductIds = new TreeSet<>();
+        for (CustomerWrite write : writes) {
+            for (CartWrite cartWrite : write.carts()) {
+                long cartId = cartWrite.cart().cartId;
+                if (cartWrite.insert()) {
+                    cartInserts.add(new Object[]{cartId, write.customerId()});
+                }
+                for (Line line : cartWrite.upserts()) {
+                    itemUpserts.add(new Object[]{line.itemId(), cartId, line.quantity(), line.productId()});
+                }
+                for (Long productId : cartWrite.removedProductIds()) {
+                    itemDeletes.add(new Object[]{cartId, productId});
+                    removedProductIds.add(productId);
+                }
+                changedCartIds.add(cartId);
+            }
+            for (Cart cart : write.deletedCarts()) {
+                cartDeletes.add(new Object[]{cart.cartId});
+            }
+        }
+        Map<Long, List<Long>> skipped = transactionTemplate.execute(status -> {
+            batchUpdate(INSERT_CART, cartInserts);
+            int[] upserted = batchUpdate(UPSERT_ITEM, itemUpserts);
+            List<Long> lockedProductIds = new ArrayList<>(removedProductIds);
+            for (int from = 0; from < lockedProductIds.size(); from += TOTALS_CHUNK) {
+                List<Long> chunk = lockedProductIds.subList(from, Math.min(from + TOTALS_CHUNK, lockedProductIds.size()));
+                jdbcTemplate.queryForList(LOCK_PRODUCTS, Map.of("productIds", chunk), Long.class);
+            }
+            batchUpdate(DELETE_ITEM, itemDeletes);
+            batchUpdate(DELETE_CART, cartDeletes);
+            for (int from = 0; from < changedCartIds.size(); from += TOTALS_CHUNK) {
+                List<Long> chunk = changedCartIds.subList(from, Math.min(from + TOTALS_CHUNK, changedCartIds.size()));
+                jdbcTemplate.update(RECOMPUTE_TOTALS, Map.of("cartIds", chunk));
+            }
+            Map<Long, List<Long>> notWritten = new HashMap<>();
+            for (int i = 0; i < upserted.length; i++) {
+                if (upserted[i] == 0) {
+                    Object[] args = itemUpserts.get(i);
+                    notWritten.computeIfAbsent((Long) args[1], cartId -> new ArrayList<>()).add((Long) args[3]);
+                }
+            }
+            return notWritten;
+        });
+        if (!skipped.isEmpty()) {
+            int lines = skipped.values().stream().mapToInt(List::size).sum();
+            logger.warn("Skipped {} cart lines in {} carts whose products no longer exist", lines, skipped.size());
+            skippedLines.increment(lines);
+        }
+        return skipped;
+    }
+
+    private int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+        if (batchArgs.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.getJdbcTemplate().batchUpdate(sql, batchArgs);
+    }
+
+    private void writeAlone(CustomerWrite write) {
+        try {
+            markWritten(write, write(List.of(write)));
+        } catch (DataIntegrityViolationException ex) {
+            // Retrying cannot succeed; the customer is reloaded from the database on next use
+            logger.error("Dropping unwritten cart changes of customer ID {}: {}", write.customerId(), ex.getMessage());
+            discard(write.customerId());
+            discarded.increment();
+        } catch (RuntimeException ex) {
+            logger.error("Cart flush of customer ID {} failed, retrying on the next flush: {}", write.customerId(), ex.getMessage());
+            requeue(write);
+        }
+    }
+
+    /**
+     * Records what was written. Lines skipped because their product is gone are dropped from memory
+     * too, and a cart left without lines is deleted on the next flush.
+     */
+    private void markWritten(CustomerWrite write, Map<Long, List<Long>> skipped) {
+        ReentrantLock lock = lockFor(write.customerId());
+        lock.lock();
+        try {
+            CustomerCarts carts = customers.get(write.customerId());
+            if (carts == null) {
+                return;
+            }
+            for (CartWrite cartWrite : write.carts()) {
+                Cart cart = cartWrite.cart();
+                List<Long> skippedProductIds = skipped.getOrDefault(cart.cartId, List.of());
+                for (Long productId : skippedProductIds) {
+                    cartWrite.lines().remove(productId);
+                    cart.lines.remove(productId);
+                }
+                cart.written = cartWrite.lines();
+                cart.writtenVersion = cartWrite.version();
+                boolean live = carts.carts.get(cart.cartId) == cart;
+                if (live && !skippedProductIds.isEmpty() && cart.lines.isEmpty()) {
+                    removeCart(carts, cart);
+                } else if (live && cart.isDirty()) {
+                    dirtyCustomers.add(write.customerId());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void requeue(CustomerWrite write) {
+        ReentrantLock lock = lockFor(write.customerId());
+        lock.lock();
+        try {
+            CustomerCarts carts = customers.get(write.customerId());
+            if (carts != null) {
+                carts.deleted.addAll(write.deletedCarts());
+                dirtyCustomers.add(write.customerId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discard(Long customerId) {
+        ReentrantLock lock = lockFor(customerId);
+        lock.lock();
+        try {
+            CustomerCarts carts = customers.remove(customerId);
+            if (carts != null) {
+                carts.carts.keySet().forEach(cartOwners::remove);
+            }
+            dirtyCustomers.remove(customerId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops customers whose carts are all written and who have not been seen for the idle period.
+     */
+    private void evictIdle() {
+        flushLock.lock();
+        try {
+            long now = System.nanoTime();
+            int evicted = 0;
+            for (CustomerCarts carts : customers.values()) {
+                ReentrantLock lock = lockFor(carts.customerId);
+                lock.lock();
+                try {
+                    if (now - carts.lastAccessNanos > idleEvictionNanos
+                            && !dirtyCustomers.contains(carts.customerId)
+                            && carts.isClean()
+                            && customers.remove(carts.customerId, carts)) {
+                        carts.carts.keySet().forEach(cartOwners::remove);
+                        evicted++;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (evicted > 0) {
+                logger.debug("Evicted carts of {} idle customers", evicted);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** One cart line. Immutable, so snapshots share them. */
+    private record Line(long itemId, long productId, int quantity) {
+    }
+
+    /** A cart's changes since its last write, taken under the customer's lock. {@code lines} is its own copy. */
+    private record CartWrite(Cart cart, long version, boolean insert, Map<Long, Line> lines,
+                             List<Line> upserts, List<Long> removedProductIds) {
+    }
+
+    private record CustomerWrite(Long customerId, List<CartWrite> carts, List<Cart> deletedCarts) {
+    }
+
+    /** A customer's carts, guarded by the customer's lock stripe. */
+    private static final class CustomerCarts {
+        private final Long customerId;
+        /** Live carts by ID, oldest first. */
+        private final TreeMap<Long, Cart> carts = new TreeMap<>();
+        /** Carts deleted in memory and not yet deleted in the database. */
+        private final List<Cart> deleted = new ArrayList<>();
+        private long lastAccessNanos = System.nanoTime();
+
+        private CustomerCarts(Long customerId) {
+            this.customerId = customerId;
+        }
+
+        private boolean isClean() {
+            return deleted.isEmpty() && carts.values().stream().noneMatch(Cart::isDirty);
+        }
+
+        /**
+         * The changes to write, or null when there are none. Deleted carts never written are dropped here.
+         */
+        private CustomerWrite snapshot() {
+            List<CartWrite> cartWrites = new ArrayList<>();
+            for (Cart cart : carts.values()) {
+                if (cart.isDirty()) {
+                    cartWrites.add(cart.snapshot());
+                }
+            }
+            List<Cart> deletedCarts = deleted.stream().filter(cart -> cart.written != null).toList();
+            deleted.clear();
+            if (cartWrites.isEmpty() && deletedCarts.isEmpty()) {
+                return null;
+            }
+            return new CustomerWrite(customerId, cartWrites, deletedCarts);
+        }
+    }
+
+    private static final class Cart {
+        private final long cartId;
+        /** Current lines by product ID, in the order they were added. */
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+        /** Lines as last written, by product ID; null until the cart row has been written. */
+        private Map<Long, Line> written;
+        private long version;
+        private long writtenVersion;
+
+        private Cart(long cartId) {
+            this.cartId = cartId;
+        }
+
+        private boolean cartIdEquals(Long id) {
+            return id != null && id == cartId;
+        }
+
+        private boolean isDirty() {
+            return version != writtenVersion;
+        }
+
+        private CartWrite snapshot() {
+            Map<Long, Line> current = new HashMap<>(lines);
+            Map<Long, Line> previous = written == null ? Map.of() : written;
+            List<Line> upserts = new ArrayList<>();
+            for (Line line : current.values()) {
+                if (!line.equals(previous.get(line.productId()))) {
+                    upserts.add(line);
+                }
+            }
+            List<Long> removed = new ArrayList<>();
+            for (Long productId : previous.keySet()) {
+                if (!current.containsKey(productId)) {
+                    removed.add(productId);
+                }
+            }
+            return new CartWrite(this, version, written == null, current, upserts, removed);
+        }
+    }
+
+    /**
+     * IDs taken from a database sequence a block at a time, in one round trip per block.
+     */
+    private final class IdBlock {
+        private final String sequence;
+        private final int blockSize;
+        // A lock rather than synchronized: the refill is a query, which would pin a virtual thread
+        private final ReentrantLock lock = new ReentrantLock();
+        private List<Long> ids = List.of();
+        private int next;
+
+        private IdBlock(String sequence, int blockSize) {
+            this.sequence = sequence;
+            this.blockSize = blockSize;
+        }
+
+        private long next() {
+            lock.lock();
+            try {
+                if (next == ids.size()) {
+                    ids = jdbcTemplate.queryForList(NEXT_IDS, Map.of("sequence", sequence, "count", blockSize), Long.class);
+                    next = 0;
+                }
+                return ids.get(next++);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
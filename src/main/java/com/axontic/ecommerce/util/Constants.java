@@ -31,6 +31,21 @@ public final class Constants {
         public static final String UPDATING_PRODUCT = "Updating product with ID: ";
         public static final String SEARCHING_PRODUCTS = "Searching for products with name: ";
 
+        // Pagination
+        public static final int MAX_PAGE_SIZE = 500;
+        public static final int DEFAULT_SEARCH_LIMIT = 50;
+        public static final int DEFAULT_SUGGESTION_LIMIT = 10;
+        public static final int MAX_EXCLUDED_PRODUCT_IDS = 500;
+        public static final int DEFAULT_CART_PAGE_SIZE = 50;
+        public static final int DEFAULT_CUSTOMER_PAGE_SIZE = 50;
+
+        // Bulk import
+        public static final int DEFAULT_IMPORT_CHUNK_SIZE = 1000;
+        public static final int MAX_IMPORT_CHUNK_SIZE = 10000;
+
+        // Cart batches
+        public static final int MAX_CART_BATCH_SIZE = 200;
+
 
     }
 
@@ -0,0 +1,65 @@
+package com.axontic.ecommerce.util;
+
+import com.axontic.ecommerce.exception.InvalidInputException;
+import com.axontic.ecommerce.model.ProductSort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination: the sort order, the last sort key and the last ID seen.
+ * Encoded as URL-safe Base64 so clients pass it back verbatim.
+ */
+public final class KeysetCursor {
+
+    /** Sort key below every real value, used to start from the first page. */
+    private static final BigDecimal FIRST_KEY = new BigDecimal("-10000000000");
+
+    private final ProductSort sort;
+    private final BigDecimal sortKey;
+    private final long lastId;
+
+    public KeysetCursor(ProductSort sort, BigDecimal sortKey, long lastId) {
+        this.sort = sort;
+        this.sortKey = sortKey;
+        this.lastId = lastId;
+    }
+
+    public static KeysetCursor first(ProductSort sort) {
+        return new KeysetCursor(sort, FIRST_KEY, 0L);
+    }
+
+    public static KeysetCursor decode(String token, ProductSort expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            ProductSort sort = ProductSort.valueOf(parts[0]);
+            if (sort != expectedSort) {
+                throw new InvalidInputException("Cursor was issued for sort " + sort + ", not " + expectedSort);
+            }
+            return new KeysetCursor(sort, new BigDecimal(parts[1]), Long.parseLong(parts[2]));
+        } catch (InvalidInputException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new InvalidInputException("Invalid cursor: " + token, ex);
+        }
+    }
+
+    public String encode() {
+        String raw = sort.name() + ":" + sortKey.toPlainString() + ":" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ProductSort getSort() {
+        return sort;
+    }
+
+    public BigDecimal getSortKey() {
+        return sortKey;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+}
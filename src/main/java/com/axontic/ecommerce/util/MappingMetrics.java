@@ -0,0 +1,70 @@
+package com.axontic.ecommerce.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times entity/DTO mapping in the services as {@code ecommerce.mapping}, tagged by mapping
+ * name and outcome, so mapping cost can be told apart from database and serialization time.
+ * Streaming imports and exports also time each row's Jackson read or write here, since the
+ * HTTP message converters do not see them.
+ */
+@Component
+public class MappingMetrics {
+
+    public static final String METRIC_NAME = "ecommerce.mapping";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public MappingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T record(String mapping, Supplier<T> mapper) {
+        long start = System.nanoTime();
+        String outcome = "ERROR";
+        try {
+            T result = mapper.get();
+            outcome = "SUCCESS";
+            return result;
+        } finally {
+            timer(mapping, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Like {@link #record(String, Supplier)}, for a Jackson read or write of a single row.
+     */
+    public <T> T recordIO(String mapping, IOSupplier<T> mapper) throws IOException {
+        long start = System.nanoTime();
+        String outcome = "ERROR";
+        try {
+            T result = mapper.get();
+            outcome = "SUCCESS";
+            return result;
+        } finally {
+            timer(mapping, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String mapping, String outcome) {
+        return timers.computeIfAbsent(mapping + '|' + outcome, key -> Timer.builder(METRIC_NAME)
+                .description("Time spent mapping between entities and DTOs")
+                .tag("mapping", mapping)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    @FunctionalInterface
+    public interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+}
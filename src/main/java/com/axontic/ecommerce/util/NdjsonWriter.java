@@ -0,0 +1,50 @@
+package com.axontic.ecommerce.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes values as newline-delimited JSON straight to an output stream.
+ * The first record is flushed immediately and then every {@link #FLUSH_INTERVAL} records,
+ * so clients start receiving data before the underlying query has finished.
+ * Closing the writer flushes it but leaves the target stream open.
+ */
+public final class NdjsonWriter implements Closeable {
+
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final JsonGenerator generator;
+    private final ObjectWriter writer;
+    private long count;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(outputStream);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.generator.setRootValueSeparator(null);
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void write(Object value) throws IOException {
+        writer.writeValue(generator, value);
+        generator.writeRaw('\n');
+        count++;
+        if (count == 1 || count % FLUSH_INTERVAL == 0) {
+            generator.flush();
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
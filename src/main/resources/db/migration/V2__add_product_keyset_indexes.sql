@@ -0,0 +1,10 @@
+-- Indexes backing keyset pagination on GET /products?limit=...
+-- Each index matches the ORDER BY of its query, with id as the tie-breaker.
+
+CREATE INDEX IF NOT EXISTS product_price_id_idx
+    ON shoppingDB.product (price, id);
+
+-- Rating is sorted descending with unrated products last; negating the key keeps
+-- the row-value comparison (key, id) > (?, ?) usable as an index range scan.
+CREATE INDEX IF NOT EXISTS product_rating_id_idx
+    ON shoppingDB.product ((-COALESCE(rating, -1)), id);
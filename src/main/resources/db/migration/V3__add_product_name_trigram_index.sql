@@ -0,0 +1,6 @@
+-- Trigram index for /products/search. A B-tree cannot serve ILIKE '%term%',
+-- a pg_trgm GIN index can, and it also provides similarity() for ranking.
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+CREATE INDEX IF NOT EXISTS product_name_trgm_idx
+    ON shoppingDB.product USING gin (name public.gin_trgm_ops);
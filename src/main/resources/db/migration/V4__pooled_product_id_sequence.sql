@@ -0,0 +1,10 @@
+-- Product IDs are allocated by Hibernate's pooled optimizer in blocks of 50
+-- (Product @SequenceGenerator allocationSize), which lets inserts be JDBC-batched.
+-- The increment must match the allocation size.
+
+-- Make sure the next block starts above every existing ID
+SELECT setval('shoppingDB.product_id_seq',
+              GREATEST((SELECT last_value FROM shoppingDB.product_id_seq),
+                       (SELECT COALESCE(MAX(id), 0) FROM shoppingDB.product)));
+
+ALTER SEQUENCE shoppingDB.product_id_seq INCREMENT BY 50;
@@ -0,0 +1,8 @@
+-- Indexes backing the add-to-cart duplicate check (is the product already in
+-- another of the customer's carts?), answered as a single EXISTS query.
+
+CREATE INDEX IF NOT EXISTS cart_item_product_id_cart_idx
+    ON shoppingDB.cart_item (product_id, shopping_cart_id);
+
+CREATE INDEX IF NOT EXISTS shopping_cart_customer_id_idx
+    ON shoppingDB.shopping_cart (customer_id);
@@ -0,0 +1,23 @@
+-- One cart_item row per (cart, product), so add-to-cart can upsert with
+-- INSERT ... ON CONFLICT instead of read-modify-write.
+
+-- Fold any existing duplicates into the oldest row, summing their quantities
+WITH merged AS (
+    SELECT MIN(id) AS keep_id, SUM(quantity) AS total_quantity
+    FROM shoppingDB.cart_item
+    GROUP BY shopping_cart_id, product_id
+    HAVING COUNT(*) > 1
+)
+UPDATE shoppingDB.cart_item ci
+SET quantity = merged.total_quantity
+FROM merged
+WHERE ci.id = merged.keep_id;
+
+DELETE FROM shoppingDB.cart_item ci
+USING shoppingDB.cart_item older
+WHERE ci.shopping_cart_id = older.shopping_cart_id
+  AND ci.product_id = older.product_id
+  AND ci.id > older.id;
+
+ALTER TABLE shoppingDB.cart_item
+    ADD CONSTRAINT cart_item_shopping_cart_id_product_id_key UNIQUE (shopping_cart_id, product_id);
@@ -0,0 +1,9 @@
+-- updated_at is maintained by Hibernate (@UpdateTimestamp) and backs the product
+-- ETag and Last-Modified validators, so every row needs one.
+UPDATE shoppingDB.product SET updated_at = COALESCE(created_at, now()) WHERE updated_at IS NULL;
+
+ALTER TABLE shoppingDB.product ALTER COLUMN updated_at SET NOT NULL;
+
+-- Serves MAX(updated_at) for the catalog listing validator without a table scan
+CREATE INDEX IF NOT EXISTS product_updated_at_idx
+    ON shoppingDB.product (updated_at);
@@ -0,0 +1,17 @@
+-- Denormalized cart totals, kept current by the statements that change cart_item, so the
+-- cart summary reads one row. item_count is the number of units; total_cents is money in
+-- integer cents, each line priced at the product's price rounded to the cent.
+ALTER TABLE shoppingDB.shopping_cart
+    ADD COLUMN IF NOT EXISTS item_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS total_cents BIGINT NOT NULL DEFAULT 0;
+
+UPDATE shoppingDB.shopping_cart sc
+SET item_count  = totals.item_count,
+    total_cents = totals.total_cents
+FROM (SELECT ci.shopping_cart_id,
+             SUM(ci.quantity) AS item_count,
+             SUM(ci.quantity * CAST(ROUND(p.price * 100) AS BIGINT)) AS total_cents
+      FROM shoppingDB.cart_item ci
+      JOIN shoppingDB.product p ON p.id = ci.product_id
+      GROUP BY ci.shopping_cart_id) totals
+WHERE sc.id = totals.shopping_cart_id;
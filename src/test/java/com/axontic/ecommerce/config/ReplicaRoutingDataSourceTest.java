@@ -0,0 +1,150 @@
+package com.axontic.ecommerce.config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the read routing against two Postgres instances: a primary and a "replica" serving two
+ * databases, told apart by {@code current_database()}. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingDataSourceTest {
+
+    @Container
+    static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primary");
+
+    @Container
+    static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("replica");
+
+    @BeforeAll
+    static void createSecondReplicaDatabase() {
+        new JdbcTemplate(dataSource(replica, replica.getJdbcUrl())).execute("CREATE DATABASE replica2");
+    }
+
+    @Test
+    void readOnlyTransactionsAlternateBetweenReplicas() {
+        Routing routing = new Routing(List.of(
+                dataSource(replica, replica.getJdbcUrl()),
+                dataSource(replica, replica.getJdbcUrl().replace("/replica?", "/replica2?"))));
+
+        List<String> databases = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            databases.add(routing.readOnly(routing::currentDatabase));
+        }
+
+        assertThat(databases).containsExactly("replica", "replica2", "replica", "replica2");
+    }
+
+    @Test
+    void writesAndNonTransactionalReadsUseThePrimary() {
+        Routing routing = new Routing(List.of(dataSource(replica, replica.getJdbcUrl())));
+
+        assertThat(routing.readWrite(routing::currentDatabase)).isEqualTo("primary");
+        assertThat(routing.currentDatabase()).isEqualTo("primary");
+    }
+
+    @Test
+    void unavailableReplicaIsSkipped() {
+        Routing routing = new Routing(List.of(
+                unreachableDataSource(),
+                dataSource(replica, replica.getJdbcUrl())));
+
+        assertThat(routing.readOnly(routing::currentDatabase)).isEqualTo("replica");
+        assertThat(routing.readOnly(routing::currentDatabase)).isEqualTo("replica");
+    }
+
+    @Test
+    void exhaustedReplicaPoolIsPassedOverButNotSkipped() {
+        AtomicBoolean exhausted = new AtomicBoolean(true);
+        DataSource firstReplica = new DelegatingDataSource(dataSource(replica, replica.getJdbcUrl())) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (exhausted.getAndSet(false)) {
+                    // What Hikari throws on a pool timeout when the database is reachable
+                    throw new SQLTransientConnectionException("replica-1 - Connection is not available, request timed out after 2000ms.");
+                }
+                return super.getConnection();
+            }
+        };
+        Routing routing = new Routing(List.of(
+                firstReplica,
+                dataSource(replica, replica.getJdbcUrl().replace("/replica?", "/replica2?"))));
+
+        List<String> databases = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            databases.add(routing.readOnly(routing::currentDatabase));
+        }
+
+        assertThat(databases).containsExactly("replica2", "replica2", "replica");
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenNoReplicaIsAvailable() {
+        Routing routing = new Routing(List.of(unreachableDataSource()));
+
+        assertThat(routing.readOnly(routing::currentDatabase)).isEqualTo("primary");
+    }
+
+    private static DataSource dataSource(PostgreSQLContainer<?> container, String url) {
+        return new DriverManagerDataSource(url, container.getUsername(), container.getPassword());
+    }
+
+    private static DataSource unreachableDataSource() {
+        return new DriverManagerDataSource("jdbc:postgresql://localhost:1/replica?connectTimeout=1", "postgres", "postgres");
+    }
+
+    /**
+     * The same chain {@link DataSourceConfig} builds, under a plain JDBC transaction manager.
+     */
+    private static class Routing {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate readOnly;
+        private final TransactionTemplate readWrite;
+
+        Routing(List<DataSource> replicas) {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(
+                    ReplicaRoutingDataSourceTest.dataSource(primary, primary.getJdbcUrl()), replicas, Duration.ofMinutes(1)));
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            jdbcTemplate = new JdbcTemplate(dataSource);
+            readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readWrite = new TransactionTemplate(transactionManager);
+        }
+
+        String currentDatabase() {
+            return jdbcTemplate.queryForObject("SELECT current_database()", String.class);
+        }
+
+        String readOnly(Supplier<String> action) {
+            return readOnly.execute(status -> action.get());
+        }
+
+        String readWrite(Supplier<String> action) {
+            return readWrite.execute(status -> action.get());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.axontic.ecommerce.config;
+
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.service.ProductService;
+import com.axontic.ecommerce.service.impl.ProductSuggestionIndex;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the read routing through the application's own JPA transaction manager, with a
+ * "replica" that has neither the schema nor the primary's data, so any read sent to it by mistake
+ * fails, starting with the suggestion index built at startup. Skipped when Docker is not available.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingJpaTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("replica");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&currentSchema=shoppingdb,public");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("ecommerce.reactive.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName());
+        registry.add("ecommerce.datasource.replicas[0].url", () -> replica.getJdbcUrl() + "&currentSchema=shoppingdb,public");
+        registry.add("ecommerce.datasource.replicas[0].username", replica::getUsername);
+        registry.add("ecommerce.datasource.replicas[0].password", replica::getPassword);
+    }
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSuggestionIndex suggestionIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void readOnlyJpaTransactionsReadFromTheReplica() {
+        assertThat(transactionManager).isInstanceOf(JpaTransactionManager.class);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        String readOnlyDatabase = readOnly.execute(status -> currentDatabase());
+        String readWriteDatabase = readWrite.execute(status -> currentDatabase());
+
+        assertThat(readOnlyDatabase).isEqualTo("replica");
+        assertThat(readWriteDatabase).isEqualTo(postgres.getDatabaseName());
+    }
+
+    @Test
+    void productValidatorsAndCacheAreReadFromThePrimary() {
+        long productId = jdbcTemplate.queryForObject("INSERT INTO product (name, price, item_type, rating) " +
+                "VALUES ('Keyboard', 49.99, 'TECH', 4.5) RETURNING id", Long.class);
+
+        // Neither exists on the replica; the last-modified read comes first so the cache cannot answer it
+        assertThat(productService.getProductLastModified(productId)).isNotNull();
+        assertThat(productService.getProductById(productId).getName()).isEqualTo("Keyboard");
+    }
+
+    @Test
+    void suggestionIndexIsRebuiltFromThePrimary() {
+        long productId = jdbcTemplate.queryForObject("INSERT INTO product (name, price, item_type, rating) " +
+                "VALUES ('Lipstick', 12.50, 'BEAUTY', 4.9) RETURNING id", Long.class);
+
+        suggestionIndex.rebuild();
+
+        assertThat(suggestionIndex.topK(List.of(ItemType.BEAUTY), List.of(), 10))
+                .extracting(ProductDTO::getItemNumber)
+                .contains(productId);
+    }
+
+    private String currentDatabase() {
+        return (String) entityManager.createNativeQuery("SELECT current_database()").getSingleResult();
+    }
+}
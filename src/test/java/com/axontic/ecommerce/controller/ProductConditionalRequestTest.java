@@ -0,0 +1,131 @@
+package com.axontic.ecommerce.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the conditional GETs on products: a single product answers If-None-Match and
+ * If-Modified-Since, while the listings only carry an ETag, so a product deleted from them is
+ * never hidden behind a 304 for a modification time the delete did not move.
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+class ProductConditionalRequestTest {
+
+    // Later than any product's modification time, so a Last-Modified check alone would answer 304
+    private static final String FUTURE = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+            ZonedDateTime.now(ZoneOffset.UTC).plusYears(1));
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&currentSchema=shoppingdb,public");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("ecommerce.reactive.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String name;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        name = "Lamp " + UUID.randomUUID();
+        productIds.clear();
+        for (int i = 0; i < 3; i++) {
+            productIds.add(jdbcTemplate.queryForObject("INSERT INTO product (name, price, item_type, rating) " +
+                    "VALUES (?, 25.00, 'TECH', 4.0) RETURNING id", Long.class, name + " " + i));
+        }
+    }
+
+    @Test
+    void productAnswersIfNoneMatchAndIfModifiedSince() throws Exception {
+        MvcResult first = mockMvc.perform(get("/products/{id}", productIds.get(0)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+
+        mockMvc.perform(get("/products/{id}", productIds.get(0))
+                        .header(HttpHeaders.IF_NONE_MATCH, first.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/products/{id}", productIds.get(0))
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void listingsAnswerIfNoneMatchButNotIfModifiedSince() throws Exception {
+        for (String uri : List.of("/products", "/products?limit=100", "/products/search?name=" + name)) {
+            MvcResult first = mockMvc.perform(get(uri))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists(HttpHeaders.ETAG))
+                    .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                    .andReturn();
+
+            mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, first.getResponse().getHeader(HttpHeaders.ETAG)))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get(uri).header(HttpHeaders.IF_MODIFIED_SINCE, FUTURE))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void deletedProductIsNotHiddenBehindANotModified() throws Exception {
+        String search = "/products/search?name=" + name;
+        String searchETag = mockMvc.perform(get(search)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String pageETag = mockMvc.perform(get("/products?limit=100")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Not the newest product, so the listings' latest modification time stays the same
+        mockMvc.perform(delete("/products/{id}", productIds.get(0)))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(search)
+                        .header(HttpHeaders.IF_NONE_MATCH, searchETag)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, FUTURE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/products?limit=100")
+                        .header(HttpHeaders.IF_NONE_MATCH, pageETag)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, FUTURE))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(search).header(HttpHeaders.IF_MODIFIED_SINCE, FUTURE))
+                .andExpect(status().isOk());
+    }
+}
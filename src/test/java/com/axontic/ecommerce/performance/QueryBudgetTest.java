@@ -0,0 +1,228 @@
+package com.axontic.ecommerce.performance;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the SQL statement count and latency of the hot cart and customer endpoints against
+ * a real Postgres, so a reintroduced N+1 fails the build instead of showing up in production.
+ * Every JDBC statement, from Hibernate or a JdbcTemplate, is counted through a datasource proxy.
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryBudgetTest {
+
+    private static final int CUSTOMERS = 200;
+    private static final int CARTS_OF_BUSY_CUSTOMER = 50;
+    private static final int ITEMS_PER_CART = 5;
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 7;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&currentSchema=shoppingdb,public");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("ecommerce.reactive.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName());
+    }
+
+    @TestConfiguration
+    static class QueryCountingConfig {
+
+        @Bean
+        static QueryCounter queryCounter() {
+            return new QueryCounter();
+        }
+
+        @Bean
+        static BeanPostProcessor queryCountingDataSourcePostProcessor(QueryCounter queryCounter) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    // Only the routing data source everything goes through, so no statement counts twice
+                    if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+                        return ProxyDataSourceBuilder.create(dataSource)
+                                .name(beanName)
+                                .listener(queryCounter)
+                                .build();
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QueryCounter queryCounter;
+
+    private long busyCustomerId;
+    private long busyCustomerLastCartId;
+    private long unusedProductId;
+
+    /**
+     * One customer with {@value #CARTS_OF_BUSY_CUSTOMER} carts and the rest with one cart each,
+     * every cart holding {@value #ITEMS_PER_CART} distinct products.
+     */
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO product (name, price, item_type, rating) " +
+                "SELECT 'Product ' || g, 10.00 + g, 'TECH', 4.0 FROM generate_series(1, 500) g");
+        jdbcTemplate.update("INSERT INTO customer (first_name, last_name, email, address) " +
+                "SELECT 'First' || g, 'Last' || g, 'customer' || g || '@example.com', g || ' Main Street' " +
+                "FROM generate_series(1, ?) g", CUSTOMERS);
+        jdbcTemplate.update("INSERT INTO shopping_cart (customer_id) " +
+                "SELECT c.id FROM customer c CROSS JOIN LATERAL " +
+                "generate_series(1, CASE WHEN c.email = 'customer1@example.com' THEN ? ELSE 1 END) " +
+                "ORDER BY c.id", CARTS_OF_BUSY_CUSTOMER);
+        // The busy customer's carts come first, so its products never repeat across its carts
+        jdbcTemplate.update("INSERT INTO cart_item (shopping_cart_id, product_id, quantity) " +
+                "SELECT sc.id, p.id, 1 " +
+                "FROM (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM shopping_cart) sc " +
+                "CROSS JOIN generate_series(0, ?) k " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM product) p " +
+                "ON p.n = (sc.n * ? + k) % 400", ITEMS_PER_CART - 1, ITEMS_PER_CART);
+        jdbcTemplate.execute("ANALYZE");
+
+        busyCustomerId = jdbcTemplate.queryForObject(
+                "SELECT id FROM customer WHERE email = 'customer1@example.com'", Long.class);
+        busyCustomerLastCartId = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM shopping_cart WHERE customer_id = ?", Long.class, busyCustomerId);
+        unusedProductId = jdbcTemplate.queryForObject(
+                "SELECT id FROM product ORDER BY id OFFSET 480 LIMIT 1", Long.class);
+    }
+
+    @Test
+    void addToCartOfCustomerWithFiftyCarts() throws Exception {
+        // Other-cart check, cart existence check and the quantity upsert with the cart totals;
+        // the product comes from the cache
+        assertBudget(post("/api/shopping-cart/add-product")
+                        .param("customerId", String.valueOf(busyCustomerId))
+                        .param("cartId", String.valueOf(busyCustomerLastCartId))
+                        .param("productId", String.valueOf(unusedProductId))
+                        .param("quantity", "1"),
+                3, 150);
+    }
+
+    @Test
+    void getCartsOfCustomerWithFiftyCarts() throws Exception {
+        // One page of cart IDs, then the carts with their items and products in one fetch
+        assertBudget(get("/api/shopping-cart/{customerId}/carts", busyCustomerId)
+                        .param("size", String.valueOf(CARTS_OF_BUSY_CUSTOMER)),
+                2, 200);
+    }
+
+    @Test
+    void getCartSummary() throws Exception {
+        // The cart row alone carries the item count and total
+        assertBudget(get("/api/shopping-cart/{cartId}/summary", busyCustomerLastCartId), 1, 50);
+    }
+
+    @Test
+    void listCustomerSummaries() throws Exception {
+        // Summary page and count query
+        assertBudget(get("/api/customers/summary").param("size", "50"), 2, 150);
+    }
+
+    @Test
+    void listCustomerSummariesWithCarts() throws Exception {
+        // Summary page, count query and every cart on the page in one fetch
+        assertBudget(get("/api/customers/summary").param("size", "50").param("include", "carts"), 3, 250);
+    }
+
+    /**
+     * Runs the request a few times to warm caches and the JIT, then asserts that no run issues
+     * more than {@code maxStatements} statements and that the median run stays within budget.
+     */
+    private void assertBudget(RequestBuilder request, int maxStatements, long maxMedianMillis) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+        }
+
+        long[] elapsedNanos = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            queryCounter.reset();
+            long start = System.nanoTime();
+            mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+            elapsedNanos[i] = System.nanoTime() - start;
+
+            List<String> statements = queryCounter.statements();
+            assertThat(statements)
+                    .as("SQL statements per request")
+                    .hasSizeLessThanOrEqualTo(maxStatements);
+        }
+
+        Arrays.sort(elapsedNanos);
+        long medianMillis = elapsedNanos[MEASURED_RUNS / 2] / 1_000_000;
+        assertThat(medianMillis)
+                .as("median request time in ms")
+                .isLessThanOrEqualTo(maxMedianMillis);
+    }
+
+    /**
+     * Records every statement executed through the proxied data source. A JDBC batch counts once.
+     */
+    static class QueryCounter implements QueryExecutionListener {
+
+        private final List<String> statements = new ArrayList<>();
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public synchronized void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            statements.add(queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery());
+        }
+
+        synchronized void reset() {
+            statements.clear();
+        }
+
+        synchronized List<String> statements() {
+            return List.copyOf(statements);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.axontic.ecommerce.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks against a real Postgres that the name search is served by the trigram index.
+ * Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class ProductSearchIndexTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&currentSchema=shoppingdb,public");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seedCatalog() {
+        jdbcTemplate.update("INSERT INTO product (name, price, item_type, rating) " +
+                "SELECT 'Product ' || md5(g::text), 10.00, 'TECH', 4.0 FROM generate_series(1, 20000) g");
+        jdbcTemplate.update("INSERT INTO product (name, price, item_type, rating) VALUES " +
+                "('Wireless Keyboard', 49.99, 'TECH', 4.5), ('Keyboard Cover', 9.99, 'TECH', 3.9)");
+        jdbcTemplate.execute("ANALYZE product");
+    }
+
+    @Test
+    void searchPlanUsesTrigramIndex() {
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        List<String> plan = namedJdbcTemplate.queryForList("EXPLAIN " + ProductRepository.NAME_SEARCH_QUERY,
+                new MapSqlParameterSource()
+                        .addValue("pattern", "keyboard")
+                        .addValue("name", "keyboard")
+                        .addValue("limit", 50),
+                String.class);
+
+        assertThat(String.join("\n", plan)).contains("product_name_trgm_idx");
+    }
+
+    @Test
+    void searchRanksBySimilarityAndHonoursLimit() {
+        assertThat(productRepository.searchByName("keyboard", "keyboard", 1))
+                .singleElement()
+                .satisfies(product -> assertThat(product.getName()).isEqualTo("Keyboard Cover"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.axontic.ecommerce.repository;
+
+import com.axontic.ecommerce.config.ReactiveDataConfig;
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.model.ProductDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the R2DBC product queries against a real Postgres migrated by the same Flyway scripts
+ * as the application. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReactiveProductRepositoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static ReactiveDataConfig reactiveDataConfig;
+    private static ReactiveProductRepository repository;
+
+    @BeforeAll
+    static void migrateAndSeed() throws SQLException {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .schemas("shoppingDB")
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO shoppingdb.product (id, name, price, item_type, rating) VALUES " +
+                    "(1, 'Wireless Keyboard', 49.99, 'TECH', 4.5), (2, 'Keyboard Cover', 9.99, 'TECH', 3.9), " +
+                    "(3, 'Face Cream', 25.00, 'BEAUTY', NULL), (4, 'Mouse Pad', 5.50, 'TECH', 4.8)");
+        }
+
+        reactiveDataConfig = new ReactiveDataConfig();
+        String r2dbcUrl = "r2dbc:postgresql://" + postgres.getHost() + ":" + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT)
+                + "/" + postgres.getDatabaseName() + "?schema=shoppingdb";
+        repository = new ReactiveProductRepository(
+                reactiveDataConfig.reactiveDatabaseClient(r2dbcUrl, postgres.getUsername(), postgres.getPassword(), 4),
+                new SimpleMeterRegistry());
+    }
+
+    @AfterAll
+    static void closePool() {
+        reactiveDataConfig.destroy();
+    }
+
+    @Test
+    void findByIdMapsAllColumns() {
+        StepVerifier.create(repository.findById(1L))
+                .assertNext(product -> {
+                    assertThat(product.getName()).isEqualTo("Wireless Keyboard");
+                    assertThat(product.getPrice()).isEqualTo(49.99);
+                    assertThat(product.getItemType()).isEqualTo(ItemType.TECH);
+                    assertThat(product.getRating()).isEqualTo(4.5);
+                })
+                .verifyComplete();
+        StepVerifier.create(repository.findById(999L)).verifyComplete();
+    }
+
+    @Test
+    void pageSeeksPastTheLastId() {
+        StepVerifier.create(repository.findPageOrderedById(1L, 2).map(ProductDTO::getItemNumber))
+                .expectNext(2L, 3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void searchMatchesTheServletQuery() {
+        StepVerifier.create(repository.searchByName("keyboard", "keyboard", 10).map(ProductDTO::getName).collectList())
+                .assertNext(names -> assertThat(names).containsExactlyInAnyOrder("Wireless Keyboard", "Keyboard Cover"))
+                .verifyComplete();
+    }
+
+    @Test
+    void topRatedSkipsExcludedAndPutsUnratedLast() {
+        StepVerifier.create(repository.findTopRated(List.of(ItemType.TECH, ItemType.BEAUTY), List.of(4L), 10)
+                        .map(ProductDTO::getItemNumber))
+                .expectNext(1L, 2L, 3L)
+                .verifyComplete();
+        StepVerifier.create(repository.findTopRated(List.of(ItemType.TECH), List.of(), 1)
+                        .map(ProductDTO::getItemNumber))
+                .expectNext(4L)
+                .verifyComplete();
+    }
+}
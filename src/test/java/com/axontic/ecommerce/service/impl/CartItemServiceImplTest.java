@@ -0,0 +1,185 @@
+package com.axontic.ecommerce.service.impl;
+
+import com.axontic.ecommerce.exception.InvalidInputException;
+import com.axontic.ecommerce.exception.ResourceNotFoundException;
+import com.axontic.ecommerce.model.CartItemOperationDTO;
+import com.axontic.ecommerce.model.CartItemOperationType;
+import com.axontic.ecommerce.response.StatusResponseDTO;
+import com.axontic.ecommerce.service.CartItemService;
+import com.axontic.ecommerce.service.ShoppingCartService;
+import com.axontic.ecommerce.util.Constants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.axontic.ecommerce.model.CartItemOperationType.ADD;
+import static com.axontic.ecommerce.model.CartItemOperationType.REMOVE;
+import static com.axontic.ecommerce.model.CartItemOperationType.SET;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Checks cart batches against a real Postgres: operations fold per product in list order, a
+ * rejected batch changes nothing, and the cart totals match the lines afterwards.
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class CartItemServiceImplTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&currentSchema=shoppingdb,public");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("ecommerce.reactive.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName());
+    }
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long customerId;
+    private long keyboardId;
+    private long mouseId;
+    private long headsetId;
+    private long cartId;
+
+    @BeforeEach
+    void seed() {
+        customerId = jdbcTemplate.queryForObject("INSERT INTO customer (first_name, last_name, email, address) " +
+                "VALUES ('Ada', 'Lovelace', ?, '1 Main Street') RETURNING id", Long.class,
+                "ada-" + UUID.randomUUID() + "@example.com");
+        keyboardId = insertProduct("Keyboard", "49.99");
+        mouseId = insertProduct("Mouse", "19.50");
+        headsetId = insertProduct("Headset", "89.00");
+        shoppingCartService.addProductToCart(customerId, null, keyboardId, 1);
+        cartId = shoppingCartService.getCustomerCarts(customerId, 0, 10).get(0).getShoppingCartId();
+    }
+
+    @Test
+    void operationsFoldPerProductInListOrder() {
+        StatusResponseDTO status = cartItemService.applyOperations(cartId, List.of(
+                operation(ADD, keyboardId, 2),
+                operation(SET, mouseId, 4),
+                operation(REMOVE, mouseId, 1),
+                operation(ADD, headsetId, 1),
+                operation(REMOVE, headsetId, 5)));
+
+        // The headset nets out to nothing, so only two lines change
+        assertThat(status.getCount()).isEqualTo(2);
+        assertThat(quantities()).containsOnly(entry(keyboardId, 3), entry(mouseId, 3));
+        assertTotals(6, 3 * 4999L + 3 * 1950L);
+    }
+
+    @Test
+    void setToZeroRemovesTheLineAndAnEmptiedCartIsDeleted() {
+        cartItemService.applyOperations(cartId, List.of(operation(ADD, mouseId, 2)));
+        assertTotals(3, 4999L + 2 * 1950L);
+
+        cartItemService.applyOperations(cartId, List.of(operation(SET, keyboardId, 0)));
+        assertThat(quantities()).containsOnly(entry(mouseId, 2));
+        assertTotals(2, 2 * 1950L);
+
+        cartItemService.applyOperations(cartId, List.of(operation(REMOVE, mouseId, 2)));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM shopping_cart WHERE id = ?", Integer.class, cartId)).isZero();
+    }
+
+    @Test
+    void productHeldInAnotherCartRejectsTheWholeBatch() {
+        shoppingCartService.addProductToCart(customerId, null, mouseId, 1);
+
+        assertThatThrownBy(() -> cartItemService.applyOperations(cartId, List.of(
+                operation(ADD, keyboardId, 1),
+                operation(ADD, mouseId, 1))))
+                .isInstanceOf(InvalidInputException.class)
+                .hasMessageContaining("different cart");
+
+        assertThat(quantities()).containsOnly(entry(keyboardId, 1));
+        assertTotals(1, 4999L);
+    }
+
+    @Test
+    void removingAProductNotInTheCartIsRejected() {
+        assertThatThrownBy(() -> cartItemService.applyOperations(cartId, List.of(
+                operation(ADD, keyboardId, 1),
+                operation(REMOVE, mouseId, 1))))
+                .isInstanceOf(InvalidInputException.class)
+                .hasMessageContaining("not in cart");
+
+        assertThat(quantities()).containsOnly(entry(keyboardId, 1));
+    }
+
+    @Test
+    void batchSizeIsBounded() {
+        List<CartItemOperationDTO> tooMany = Collections.nCopies(Constants.MAX_CART_BATCH_SIZE + 1, operation(ADD, keyboardId, 1));
+
+        assertThatThrownBy(() -> cartItemService.applyOperations(cartId, tooMany))
+                .isInstanceOf(InvalidInputException.class);
+        assertThatThrownBy(() -> cartItemService.applyOperations(cartId, List.of()))
+                .isInstanceOf(InvalidInputException.class);
+
+        List<CartItemOperationDTO> largest = Collections.nCopies(Constants.MAX_CART_BATCH_SIZE, operation(ADD, keyboardId, 1));
+        cartItemService.applyOperations(cartId, largest);
+        assertTotals(1 + Constants.MAX_CART_BATCH_SIZE, (1 + Constants.MAX_CART_BATCH_SIZE) * 4999L);
+    }
+
+    @Test
+    void unknownCartOrProductIsNotFound() {
+        assertThatThrownBy(() -> cartItemService.applyOperations(cartId, List.of(operation(ADD, Long.MAX_VALUE, 1))))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> cartItemService.applyOperations(Long.MAX_VALUE, List.of(operation(ADD, keyboardId, 1))))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private long insertProduct(String name, String price) {
+        return jdbcTemplate.queryForObject("INSERT INTO product (name, price, item_type, rating) " +
+                "VALUES (?, CAST(? AS NUMERIC), 'TECH', 4.0) RETURNING id", Long.class, name, price);
+    }
+
+    private static CartItemOperationDTO operation(CartItemOperationType type, long productId, int quantity) {
+        return new CartItemOperationDTO(type, productId, quantity);
+    }
+
+    private Map<Long, Integer> quantities() {
+        return jdbcTemplate.query("SELECT product_id, quantity FROM cart_item WHERE shopping_cart_id = ?",
+                rs -> {
+                    Map<Long, Integer> quantities = new HashMap<>();
+                    while (rs.next()) {
+                        quantities.put(rs.getLong("product_id"), rs.getInt("quantity"));
+                    }
+                    return quantities;
+                }, cartId);
+    }
+
+    private void assertTotals(int itemCount, long totalCents) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT item_count, total_cents FROM shopping_cart WHERE id = ?", cartId);
+        assertThat(((Number) row.get("item_count")).intValue()).isEqualTo(itemCount);
+        assertThat(((Number) row.get("total_cents")).longValue()).isEqualTo(totalCents);
+    }
+}
@@ -0,0 +1,174 @@
+package com.axontic.ecommerce.service.impl;
+
+import com.axontic.ecommerce.entity.ItemType;
+import com.axontic.ecommerce.mapper.ProductMapper;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.repository.ProductRepository;
+import com.axontic.ecommerce.repository.projection.ProductView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSuggestionIndexTest {
+
+    private ProductRepository repository;
+    private ProductSuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProductRepository.class);
+        index = new ProductSuggestionIndex(repository, new ProductMapper());
+    }
+
+    @Test
+    void topKMergesTypesBestRatedFirstWithUnratedLast() {
+        index.replaceAll(List.of(
+                product(1L, ItemType.TECH, 4.0),
+                product(2L, ItemType.BEAUTY, 4.8),
+                product(3L, ItemType.TECH, null),
+                product(4L, ItemType.TECH, 4.8),
+                product(5L, ItemType.VEHICLE, 5.0)));
+
+        assertThat(ids(index.topK(List.of(ItemType.TECH, ItemType.BEAUTY), List.of(), 10)))
+                .containsExactly(2L, 4L, 1L, 3L);
+        assertThat(ids(index.topK(List.of(ItemType.TECH, ItemType.BEAUTY), List.of(), 2)))
+                .containsExactly(2L, 4L);
+    }
+
+    @Test
+    void excludedIdsAreSkipped() {
+        index.replaceAll(List.of(
+                product(1L, ItemType.TECH, 4.0),
+                product(2L, ItemType.TECH, 3.0),
+                product(3L, ItemType.TECH, 2.0)));
+
+        assertThat(ids(index.topK(List.of(ItemType.TECH), List.of(1L, 3L), 10))).containsExactly(2L);
+    }
+
+    @Test
+    void extremeExcludedIdsAreHandled() {
+        index.replaceAll(List.of(
+                product(1L, ItemType.TECH, 4.0),
+                product(2_000_000_000L, ItemType.TECH, 3.0),
+                product(5_000_000_000L, ItemType.TECH, 2.0),
+                product(6L, ItemType.TECH, 1.0)));
+
+        List<Long> excluded = List.of(Long.MIN_VALUE, 1L, 2_000_000_000L, 5_000_000_000L, Long.MAX_VALUE);
+
+        assertThat(ids(index.topK(List.of(ItemType.TECH), excluded, 10))).containsExactly(6L);
+    }
+
+    @Test
+    void upsertMovesAChangedProductAndRemoveDropsIt() {
+        index.replaceAll(List.of(
+                product(1L, ItemType.TECH, 4.0),
+                product(2L, ItemType.TECH, 3.0)));
+
+        index.upsert(product(2L, ItemType.TECH, 5.0));
+        assertThat(ids(index.topK(List.of(ItemType.TECH), List.of(), 10))).containsExactly(2L, 1L);
+
+        // A change of type moves the product between lists
+        index.upsert(product(2L, ItemType.BEAUTY, 5.0));
+        assertThat(ids(index.topK(List.of(ItemType.TECH), List.of(), 10))).containsExactly(1L);
+        assertThat(ids(index.topK(List.of(ItemType.BEAUTY), List.of(), 10))).containsExactly(2L);
+
+        index.remove(1L);
+        assertThat(index.topK(List.of(ItemType.TECH), List.of(), 10)).isEmpty();
+    }
+
+    @Test
+    void upsertAllMergesABatch() {
+        index.replaceAll(List.of(product(1L, ItemType.TECH, 3.0)));
+
+        index.upsertAll(List.of(
+                product(2L, ItemType.TECH, 4.0),
+                product(1L, ItemType.TECH, 1.0),
+                product(3L, ItemType.TECH, 2.0)));
+
+        assertThat(ids(index.topK(List.of(ItemType.TECH), List.of(), 10))).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void writesMadeDuringARebuildAreReplayedOntoIt() {
+        index.replaceAll(List.of(product(1L, ItemType.TECH, 1.0)));
+        when(repository.streamAllViews()).thenAnswer(invocation -> {
+            // Applied while the rebuild is loading, and missing from the rows it loads
+            index.upsert(product(9L, ItemType.TECH, 5.0));
+            index.upsert(product(2L, ItemType.TECH, 0.5));
+            index.remove(3L);
+            return Stream.of(view(1L, ItemType.TECH, 1.0), view(2L, ItemType.TECH, 4.5), view(3L, ItemType.TECH, 3.0));
+        });
+
+        index.rebuild();
+
+        assertThat(ids(index.topK(List.of(ItemType.TECH), List.of(), 10))).containsExactly(9L, 1L, 2L);
+
+        // Writes after the rebuild are no longer recorded for replay
+        index.upsert(product(4L, ItemType.TECH, 2.0));
+        assertThat(ids(index.topK(List.of(ItemType.TECH), List.of(), 10))).containsExactly(9L, 4L, 1L, 2L);
+    }
+
+    @Test
+    void failedRebuildKeepsTheCurrentIndex() {
+        index.replaceAll(List.of(product(1L, ItemType.TECH, 1.0)));
+        when(repository.streamAllViews()).thenThrow(new IllegalStateException("database down"));
+
+        try {
+            index.rebuild();
+        } catch (IllegalStateException expected) {
+            // The scheduler logs it; the index keeps serving
+        }
+        index.upsert(product(2L, ItemType.TECH, 2.0));
+
+        assertThat(ids(index.topK(List.of(ItemType.TECH), List.of(), 10))).containsExactly(2L, 1L);
+    }
+
+    private static ProductDTO product(Long id, ItemType itemType, Double rating) {
+        ProductDTO product = new ProductDTO();
+        product.setItemNumber(id);
+        product.setName("Product " + id);
+        product.setPrice(10.0);
+        product.setItemType(itemType);
+        product.setRating(rating);
+        return product;
+    }
+
+    private static ProductView view(Long id, ItemType itemType, Double rating) {
+        return new ProductView() {
+            public Long getItemNumber() {
+                return id;
+            }
+
+            public String getName() {
+                return "Product " + id;
+            }
+
+            public Double getPrice() {
+                return 10.0;
+            }
+
+            public ItemType getItemType() {
+                return itemType;
+            }
+
+            public Double getRating() {
+                return rating;
+            }
+
+            public LocalDateTime getUpdatedAt() {
+                return LocalDateTime.of(2024, 1, 1, 0, 0);
+            }
+        };
+    }
+
+    private static List<Long> ids(List<ProductDTO> products) {
+        return products.stream().map(ProductDTO::getItemNumber).toList();
+    }
+}
@@ -0,0 +1,212 @@
+package com.axontic.ecommerce.service.impl;
+
+import com.axontic.ecommerce.model.CartItemOperationDTO;
+import com.axontic.ecommerce.model.CartItemOperationType;
+import com.axontic.ecommerce.model.ProductDTO;
+import com.axontic.ecommerce.service.CartItemService;
+import com.axontic.ecommerce.service.ProductService;
+import com.axontic.ecommerce.service.ShoppingCartService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the item count and total maintained on each cart row stay equal to the sums
+ * recomputed from its items as products are added, removed, repriced and deleted.
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class ShoppingCartTotalsTest {
+
+    private static final String TOTALS_QUERY = """
+            SELECT sc.id, sc.item_count, sc.total_cents,
+                   COALESCE(SUM(ci.quantity), 0) AS expected_item_count,
+                   COALESCE(SUM(ci.quantity * CAST(ROUND(p.price * 100) AS BIGINT)), 0) AS expected_total_cents
+            FROM shopping_cart sc
+            LEFT JOIN cart_item ci ON ci.shopping_cart_id = sc.id
+            LEFT JOIN product p ON p.id = ci.product_id
+            WHERE sc.customer_id = ?
+            GROUP BY sc.id
+            """;
+
+    // Carts whose maintained totals differ from the sums recomputed from their items
+    private static final String DRIFTED_CARTS_QUERY = """
+            SELECT sc.id FROM shopping_cart sc
+            LEFT JOIN cart_item ci ON ci.shopping_cart_id = sc.id
+            LEFT JOIN product p ON p.id = ci.product_id
+            WHERE sc.customer_id IN (%s)
+            GROUP BY sc.id
+            HAVING sc.item_count <> COALESCE(SUM(ci.quantity), 0)
+                OR sc.total_cents <> COALESCE(SUM(ci.quantity * CAST(ROUND(p.price * 100) AS BIGINT)), 0)
+            """;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&currentSchema=shoppingdb,public");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("ecommerce.reactive.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName());
+    }
+
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long customerId;
+    private long keyboardId;
+    private long mouseId;
+
+    @BeforeEach
+    void seed() {
+        customerId = jdbcTemplate.queryForObject("INSERT INTO customer (first_name, last_name, email, address) " +
+                "VALUES ('Ada', 'Lovelace', ?, '1 Main Street') RETURNING id", Long.class,
+                "ada-" + UUID.randomUUID() + "@example.com");
+        keyboardId = jdbcTemplate.queryForObject("INSERT INTO product (name, price, item_type, rating) " +
+                "VALUES ('Keyboard', 49.99, 'TECH', 4.5) RETURNING id", Long.class);
+        mouseId = jdbcTemplate.queryForObject("INSERT INTO product (name, price, item_type, rating) " +
+                "VALUES ('Mouse', 19.50, 'TECH', 4.0) RETURNING id", Long.class);
+    }
+
+    @Test
+    void totalsFollowAddRemoveRepriceAndDelete() {
+        shoppingCartService.addProductToCart(customerId, null, keyboardId, 2);
+        Long cartId = shoppingCartService.getCustomerCarts(customerId, 0, 10).get(0).getShoppingCartId();
+        shoppingCartService.addProductToCart(customerId, cartId, mouseId, 3);
+        assertTotals(5, 2 * 4999L + 3 * 1950L);
+
+        shoppingCartService.addProductToCart(customerId, cartId, keyboardId, 1);
+        assertTotals(6, 3 * 4999L + 3 * 1950L);
+
+        shoppingCartService.removeProductFromCart(customerId, mouseId, 1);
+        assertTotals(5, 3 * 4999L + 2 * 1950L);
+
+        reprice(keyboardId, 45.00);
+        assertTotals(5, 3 * 4500L + 2 * 1950L);
+
+        productService.deleteProduct(mouseId);
+        assertTotals(3, 3 * 4500L);
+
+        shoppingCartService.removeProductFromCart(customerId, keyboardId, 3);
+        assertThat(jdbcTemplate.queryForList(TOTALS_QUERY, customerId)).isEmpty();
+    }
+
+    @Test
+    void concurrentRepricesKeepTotalsConsistent() throws Exception {
+        shoppingCartService.addProductToCart(customerId, null, keyboardId, 4);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> updates = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                double price = 10.00 + i;
+                updates.add(executor.submit(() -> reprice(keyboardId, price)));
+            }
+            for (Future<?> update : updates) {
+                update.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long priceCents = jdbcTemplate.queryForObject(
+                "SELECT CAST(ROUND(price * 100) AS BIGINT) FROM product WHERE id = ?", Long.class, keyboardId);
+        assertTotals(4, 4 * priceCents);
+    }
+
+    @Test
+    void repricesConcurrentWithRemovalsKeepTotalsConsistent() throws Exception {
+        List<Long> customerIds = new ArrayList<>();
+        List<Long> cartIds = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            long customer = jdbcTemplate.queryForObject("INSERT INTO customer (first_name, last_name, email, address) " +
+                    "VALUES ('Ada', 'Lovelace', ?, '1 Main Street') RETURNING id", Long.class,
+                    "ada-" + UUID.randomUUID() + "@example.com");
+            shoppingCartService.addProductToCart(customer, null, keyboardId, 30);
+            customerIds.add(customer);
+            cartIds.add(shoppingCartService.getCustomerCarts(customer, 0, 10).get(0).getShoppingCartId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int round = 0; round < 20; round++) {
+                double price = 10.00 + round;
+                tasks.add(executor.submit(() -> reprice(keyboardId, price)));
+                for (int i = 0; i < customerIds.size(); i++) {
+                    long customer = customerIds.get(i);
+                    long cartId = cartIds.get(i);
+                    // Half the carts go through the single-item path, half through batches
+                    tasks.add(executor.submit(i % 2 == 0
+                            ? () -> shoppingCartService.removeProductFromCart(customer, keyboardId, 1)
+                            : () -> cartItemService.applyOperations(cartId, List.of(
+                                    new CartItemOperationDTO(CartItemOperationType.REMOVE, keyboardId, 1)))));
+                }
+                // The last line of each cart goes in the final round, through the delete statement
+                if (round == 19) {
+                    for (long customer : customerIds.subList(0, 2)) {
+                        tasks.add(executor.submit(() -> shoppingCartService.removeProductFromCart(customer, keyboardId, 10)));
+                    }
+                }
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        String customers = String.join(",", customerIds.stream().map(String::valueOf).toList());
+        assertThat(jdbcTemplate.queryForList(DRIFTED_CARTS_QUERY.formatted(customers), Long.class)).isEmpty();
+    }
+
+    private void reprice(long productId, double price) {
+        ProductDTO product = productService.getProductById(productId);
+        product.setPrice(price);
+        productService.updateProduct(productId, product);
+    }
+
+    private void assertTotals(int itemCount, long totalCents) {
+        assertThat(jdbcTemplate.queryForList(TOTALS_QUERY, customerId)).singleElement().satisfies(row -> {
+            assertThat(row.get("item_count")).isEqualTo(itemCount);
+            assertThat(row.get("total_cents")).isEqualTo(totalCents);
+            assertRecomputed(row);
+        });
+    }
+
+    private static void assertRecomputed(Map<String, Object> row) {
+        assertThat(((Number) row.get("item_count")).longValue())
+                .isEqualTo(((Number) row.get("expected_item_count")).longValue());
+        assertThat(((Number) row.get("total_cents")).longValue())
+                .isEqualTo(((Number) row.get("expected_total_cents")).longValue());
+    }
+}
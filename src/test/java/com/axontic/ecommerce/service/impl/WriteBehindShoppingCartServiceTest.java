@@ -0,0 +1,241 @@
+package com.axontic.ecommerce.service.impl;
+
+import com.axontic.ecommerce.config.CartWriteBehindProperties;
+import com.axontic.ecommerce.model.CartItemOperationDTO;
+import com.axontic.ecommerce.model.CartItemOperationType;
+import com.axontic.ecommerce.model.CartSummaryDTO;
+import com.axontic.ecommerce.model.ShoppingCartDTO;
+import com.axontic.ecommerce.service.CartItemService;
+import com.axontic.ecommerce.service.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.axontic.ecommerce.service.ShoppingCartService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the write-behind engine acknowledges cart changes in memory and writes them, with
+ * the cart totals, on flush, skipping lines whose product has been deleted; and that the writer
+ * flushes on reaching the threshold and on shutdown. The flush interval is long so only explicit
+ * flushes write.
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {
+        "ecommerce.cart.engine=write-behind",
+        "ecommerce.cart.write-behind.flush-interval=1h"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class WriteBehindShoppingCartServiceTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&currentSchema=shoppingdb,public");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("ecommerce.reactive.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName());
+    }
+
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductService productService;
+
+    private long customerId;
+    private long keyboardId;
+    private long mouseId;
+
+    @BeforeEach
+    void seed() {
+        customerId = jdbcTemplate.queryForObject("INSERT INTO customer (first_name, last_name, email, address) " +
+                "VALUES ('Ada', 'Lovelace', ?, '1 Main Street') RETURNING id", Long.class,
+                "ada-" + UUID.randomUUID() + "@example.com");
+        keyboardId = jdbcTemplate.queryForObject("INSERT INTO product (name, price, item_type, rating) " +
+                "VALUES ('Keyboard', 49.99, 'TECH', 4.5) RETURNING id", Long.class);
+        mouseId = jdbcTemplate.queryForObject("INSERT INTO product (name, price, item_type, rating) " +
+                "VALUES ('Mouse', 19.50, 'TECH', 4.0) RETURNING id", Long.class);
+    }
+
+    @Test
+    void changesAreWrittenWithTotalsOnFlush() {
+        WriteBehindShoppingCartService engine = (WriteBehindShoppingCartService) shoppingCartService;
+
+        shoppingCartService.addProductToCart(customerId, null, keyboardId, 2);
+        Long cartId = shoppingCartService.getCustomerCarts(customerId, 0, 10).get(0).getShoppingCartId();
+        shoppingCartService.addProductToCart(customerId, cartId, mouseId, 1);
+
+        assertThat(cartRows()).isEmpty();
+        assertThat(shoppingCartService.getCartSummary(cartId))
+                .extracting(CartSummaryDTO::getItemCount, CartSummaryDTO::getTotalCents)
+                .containsExactly(3, 2 * 4999L + 1950L);
+
+        assertThat(engine.flush()).isEqualTo(1);
+
+        assertThat(cartRows()).singleElement().satisfies(row -> {
+            assertThat(row.get("id")).isEqualTo(cartId.intValue());
+            assertThat(row.get("item_count")).isEqualTo(3);
+            assertThat(row.get("total_cents")).isEqualTo(2 * 4999L + 1950L);
+        });
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT SUM(quantity) FROM cart_item WHERE shopping_cart_id = ?", Long.class, cartId)).isEqualTo(3L);
+    }
+
+    @Test
+    void emptiedCartIsDeletedOnFlush() {
+        WriteBehindShoppingCartService engine = (WriteBehindShoppingCartService) shoppingCartService;
+
+        shoppingCartService.addProductToCart(customerId, null, keyboardId, 1);
+        engine.flush();
+        assertThat(cartRows()).hasSize(1);
+
+        shoppingCartService.removeProductFromCart(customerId, keyboardId, 1);
+        List<ShoppingCartDTO> carts = shoppingCartService.getCustomerCarts(customerId, 0, 10);
+        assertThat(carts).isEmpty();
+        assertThat(cartRows()).hasSize(1);
+
+        engine.flush();
+        assertThat(cartRows()).isEmpty();
+    }
+
+    @Test
+    void batchesAreAppliedInMemoryAndWrittenOnFlush() {
+        WriteBehindShoppingCartService engine = (WriteBehindShoppingCartService) shoppingCartService;
+        assertThat(cartItemService).isSameAs(engine);
+
+        shoppingCartService.addProductToCart(customerId, null, keyboardId, 1);
+        Long cartId = shoppingCartService.getCustomerCarts(customerId, 0, 10).get(0).getShoppingCartId();
+        engine.flush();
+
+        cartItemService.applyOperations(cartId, List.of(
+                new CartItemOperationDTO(CartItemOperationType.ADD, keyboardId, 2),
+                new CartItemOperationDTO(CartItemOperationType.SET, mouseId, 4),
+                new CartItemOperationDTO(CartItemOperationType.REMOVE, mouseId, 1)));
+
+        // Acknowledged in memory; the database still holds the last flush
+        assertThat(shoppingCartService.getCartSummary(cartId).getItemCount()).isEqualTo(6);
+        assertThat(cartRows()).singleElement().satisfies(row -> assertThat(row.get("item_count")).isEqualTo(1));
+
+        engine.flush();
+
+        assertThat(cartRows()).singleElement().satisfies(row -> {
+            assertThat(row.get("item_count")).isEqualTo(6);
+            assertThat(row.get("total_cents")).isEqualTo(3 * 4999L + 3 * 1950L);
+        });
+    }
+
+    @Test
+    void linesOfDeletedProductsAreSkippedAndTheRestWritten() {
+        WriteBehindShoppingCartService engine = (WriteBehindShoppingCartService) shoppingCartService;
+
+        shoppingCartService.addProductToCart(customerId, null, keyboardId, 2);
+        Long cartId = shoppingCartService.getCustomerCarts(customerId, 0, 10).get(0).getShoppingCartId();
+        shoppingCartService.addProductToCart(customerId, cartId, mouseId, 1);
+        jdbcTemplate.update("DELETE FROM product WHERE id = ?", mouseId);
+
+        assertThat(engine.flush()).isEqualTo(1);
+
+        assertThat(cartRows()).singleElement().satisfies(row -> {
+            assertThat(row.get("item_count")).isEqualTo(2);
+            assertThat(row.get("total_cents")).isEqualTo(2 * 4999L);
+        });
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT product_id FROM cart_item WHERE shopping_cart_id = ?", Long.class, cartId))
+                .containsExactly(keyboardId);
+        // The skipped line is gone from memory too, so nothing is left to write
+        assertThat(engine.flush()).isZero();
+        assertThat(shoppingCartService.getCartSummary(cartId).getItemCount()).isEqualTo(2);
+    }
+
+    @Test
+    void cartLeftEmptyBySkippedLinesIsDeleted() {
+        WriteBehindShoppingCartService engine = (WriteBehindShoppingCartService) shoppingCartService;
+
+        shoppingCartService.addProductToCart(customerId, null, mouseId, 1);
+        jdbcTemplate.update("DELETE FROM product WHERE id = ?", mouseId);
+
+        engine.flush();
+        assertThat(shoppingCartService.getCustomerCarts(customerId, 0, 10)).isEmpty();
+
+        engine.flush();
+        assertThat(cartRows()).isEmpty();
+    }
+
+    @Test
+    void pendingChangesAreFlushedOnShutdown() throws Exception {
+        // A separate engine, so stopping it leaves the context's engine running
+        WriteBehindShoppingCartService engine = newEngine(Duration.ofHours(1), 500);
+
+        engine.addProductToCart(customerId, null, keyboardId, 2);
+        assertThat(cartRows()).isEmpty();
+
+        engine.destroy();
+
+        assertThat(cartRows()).singleElement().satisfies(row -> {
+            assertThat(row.get("item_count")).isEqualTo(2);
+            assertThat(row.get("total_cents")).isEqualTo(2 * 4999L);
+        });
+    }
+
+    @Test
+    void writerFlushesOnceThresholdIsReached() throws Exception {
+        WriteBehindShoppingCartService engine = newEngine(Duration.ofHours(1), 1);
+        try {
+            engine.addProductToCart(customerId, null, mouseId, 3);
+
+            // Well before the interval: only the threshold can have woken the writer
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (cartRows().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(cartRows()).singleElement()
+                    .satisfies(row -> assertThat(row.get("total_cents")).isEqualTo(3 * 1950L));
+        } finally {
+            engine.destroy();
+        }
+    }
+
+    private WriteBehindShoppingCartService newEngine(Duration flushInterval, int flushThreshold) {
+        CartWriteBehindProperties properties = new CartWriteBehindProperties();
+        properties.setFlushInterval(flushInterval);
+        properties.setFlushThreshold(flushThreshold);
+        return new WriteBehindShoppingCartService(namedParameterJdbcTemplate, transactionManager, productService,
+                properties, new SimpleMeterRegistry());
+    }
+
+    private List<Map<String, Object>> cartRows() {
+        return jdbcTemplate.queryForList(
+                "SELECT id, item_count, total_cents FROM shopping_cart WHERE customer_id = ?", customerId);
+    }
+}